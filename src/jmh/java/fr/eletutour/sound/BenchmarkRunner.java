@@ -0,0 +1,47 @@
+package fr.eletutour.sound;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Runs the DSP benchmarks and reports each one as nanoseconds per sample and as a real-time factor at
+ * {@link AudioConstants#SAMPLE_RATE}: "x100" means one core renders or analyses 100 streams in real time.
+ * <p>
+ * Every benchmark normalises its score to one audio sample, so the figures can be compared across
+ * releases and against each other. No audio device is needed.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * @param args An optional regular expression selecting the benchmarks (e.g. "Guitar"); all by default.
+     * @throws RunnerException If a benchmark fails.
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "fr\\.eletutour\\.sound\\..*Benchmark")
+                .jvmArgsAppend("-Djava.awt.headless=true")
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-72s %12s %16s%n", "Benchmark", "ns/sample",
+                "x real-time @ " + (int) (AudioConstants.SAMPLE_RATE / 1000) + " kHz");
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark().replace("fr.eletutour.sound.", "");
+            StringBuilder label = new StringBuilder(name);
+            for (String key : result.getParams().getParamsKeys()) {
+                label.append(' ').append(key).append('=').append(result.getParams().getParam(key));
+            }
+            double nanosPerSample = result.getPrimaryResult().getScore();
+            double realTimeFactor = 1e9 / (nanosPerSample * AudioConstants.SAMPLE_RATE);
+            System.out.printf(Locale.ROOT, "%-72s %12.2f %15.1fx%n", label, nanosPerSample, realTimeFactor);
+        }
+    }
+}
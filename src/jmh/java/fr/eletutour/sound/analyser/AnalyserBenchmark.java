@@ -0,0 +1,88 @@
+package fr.eletutour.sound.analyser;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis hot paths, fed with a harmonic tone plus noise. Scores are in nanoseconds per input sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalyserBenchmark {
+
+    private static final int PITCH_WINDOW = 2048;
+
+    private double[] signal;
+    private double[] magnitudes;
+    private double[] decimated;
+    private FftPlan fft;
+    private ShortTimeFourierTransform stft;
+    private PitchDetector pitchDetector;
+    private GoertzelFilterBank noteBank;
+    private Decimator decimator;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        Random random = new Random(42);
+        signal = new double[AudioConstants.SAMPLE_COUNT];
+        for (int i = 0; i < signal.length; i++) {
+            double t = i / AudioConstants.SAMPLE_RATE;
+            signal[i] = 0.5 * Math.sin(2 * Math.PI * 220.0 * t)
+                    + 0.25 * Math.sin(2 * Math.PI * 440.0 * t)
+                    + 0.05 * (random.nextDouble() - 0.5);
+        }
+        magnitudes = new double[AudioConstants.SAMPLE_COUNT / 2];
+        fft = new FftPlan(AudioConstants.SAMPLE_COUNT);
+        stft = new ShortTimeFourierTransform(AudioConstants.SAMPLE_COUNT, AudioConstants.HOP_SIZE, WindowFunction.HANN,
+                (frame, m) -> this.blackhole.consume(m[1]));
+        pitchDetector = new PitchDetector(PITCH_WINDOW, AudioConstants.SAMPLE_RATE);
+        noteBank = new GoertzelFilterBank(AudioConstants.SAMPLE_RATE, AudioConstants.HOP_SIZE,
+                amplitudes -> this.blackhole.consume(amplitudes[0]));
+        decimator = new Decimator(8);
+        decimated = new double[decimator.maxOutputLength(AudioConstants.HOP_SIZE)];
+    }
+
+    /** A single real-input FFT of a full frame. */
+    @Benchmark
+    @OperationsPerInvocation(AudioConstants.SAMPLE_COUNT)
+    public double fftMagnitudes() {
+        fft.magnitudes(signal, magnitudes);
+        return magnitudes[1];
+    }
+
+    /** The streaming STFT, which runs one FFT per hop. */
+    @Benchmark
+    @OperationsPerInvocation(AudioConstants.HOP_SIZE)
+    public void stftHop() {
+        stft.process(signal, 0, AudioConstants.HOP_SIZE);
+    }
+
+    /** One pitch detection per hop, as done by the console analyser. */
+    @Benchmark
+    @OperationsPerInvocation(AudioConstants.HOP_SIZE)
+    public double pitchDetection() {
+        return pitchDetector.detect(signal, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(AudioConstants.HOP_SIZE)
+    public void goertzelNotes() {
+        noteBank.process(signal, 0, AudioConstants.HOP_SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(AudioConstants.HOP_SIZE)
+    public int decimateBy8() {
+        return decimator.process(signal, 0, AudioConstants.HOP_SIZE, decimated, 0);
+    }
+}
@@ -0,0 +1,45 @@
+package fr.eletutour.sound.generation;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.engine.NullSink;
+import fr.eletutour.sound.generation.engine.OfflineRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The tone of the sound generator as the engine plays it: oscillator, mix and PCM conversion, in nanoseconds
+ * per sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SoundGeneratorBenchmark {
+
+    // Blocks per call, so that opening the sink is negligible
+    private static final int BLOCKS = 64;
+
+    @Param({"SINE", "SQUARE", "TRIANGLE", "SAWTOOTH"})
+    public AudioConstants.Waveform waveform;
+
+    private OfflineRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        ToneAudioProcessor tone = new ToneAudioProcessor();
+        tone.publish(new ToneAudioProcessor.Settings(waveform, 440));
+        tone.setPlaying(true);
+        renderer = new OfflineRenderer(new NullSink()).add(tone);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS * AudioEngine.BLOCK_SIZE)
+    public long renderTone() throws IOException {
+        return renderer.render((long) BLOCKS * AudioEngine.BLOCK_SIZE, (frame, length) -> { }).frames();
+    }
+}
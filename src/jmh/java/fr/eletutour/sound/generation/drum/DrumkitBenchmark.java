@@ -0,0 +1,75 @@
+package fr.eletutour.sound.generation.drum;
+
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.engine.NoteEvent;
+import fr.eletutour.sound.generation.engine.NoteEventQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drum voices and the drumkit mixing loop, in nanoseconds per output sample. Finished voices are
+ * triggered again so every call renders sound.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DrumkitBenchmark {
+
+    @State(Scope.Thread)
+    public static class VoiceState {
+        @Param({"KICK", "SNARE", "HIHAT_CLOSED", "CYMBAL"})
+        public String sound;
+
+        private final DrumSampleBank bank = new DrumSampleBank(new Random(42));
+        private final DrumVoice voice = new DrumVoice();
+        private final double[] mix = new double[AudioEngine.BLOCK_SIZE];
+        private DrumSound drumSound;
+
+        @Setup
+        public void setUp() {
+            drumSound = DrumSound.valueOf(sound);
+            voice.trigger(drumSound, bank.next(drumSound), 1.0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MixState {
+        // Blocks between two hits of the whole kit: about every 90 ms, or on every block to hammer the pool
+        @Param({"8", "1"})
+        public int blocksPerHit;
+
+        private final double[] mix = new double[AudioEngine.BLOCK_SIZE];
+        private final NoteEventQueue noteEvents = new NoteEventQueue(16);
+        private final DrumAudioProcessor processor =
+                new DrumAudioProcessor(noteEvents, new DrumVoicePool(8, new DrumSampleBank(new Random(42))));
+        private int blocks = 0;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(AudioEngine.BLOCK_SIZE)
+    public double[] drumVoice(VoiceState state) {
+        if (!state.voice.isActive()) state.voice.trigger(state.drumSound, state.bank.next(state.drumSound), 1.0);
+        state.voice.render(state.mix, 0, AudioEngine.BLOCK_SIZE);
+        return state.mix;
+    }
+
+    /** The full kit playing at once, hits going through the event queue as from the keyboard. */
+    @Benchmark
+    @OperationsPerInvocation(AudioEngine.BLOCK_SIZE)
+    public double[] soundLoopMix(MixState state) {
+        if (state.blocks++ % state.blocksPerHit == 0) {
+            for (DrumSound sound : DrumSound.values()) {
+                state.noteEvents.post(NoteEvent.Type.TRIGGER, sound.ordinal(), 0.0, 1.0);
+            }
+        }
+        Arrays.fill(state.mix, 0.0);
+        state.processor.render(state.mix, AudioEngine.BLOCK_SIZE);
+        return state.mix;
+    }
+}
@@ -0,0 +1,69 @@
+package fr.eletutour.sound.generation.guitar;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.engine.NoteEventQueue;
+import fr.eletutour.sound.generation.engine.SmoothedParameter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Karplus-Strong strings and the guitar mixing loop, in nanoseconds per output sample. Strings that have
+ * faded out are plucked again so every call renders sound.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GuitarBenchmark {
+
+    // Standard tuning, all six strings ringing together
+    private static final String[] STRINGS = {"E2", "A2", "D3", "G3", "B3", "E4"};
+
+    @State(Scope.Thread)
+    public static class MixState {
+        @Param({"0.0", "0.5"})
+        public float distortionLevel;
+
+        private final double[] mix = new double[AudioEngine.BLOCK_SIZE];
+        private GuitarAudioProcessor processor;
+
+        @Setup
+        public void setUp() {
+            // The queue stays empty: the strings are plucked directly so that all six ring in every call
+            processor = new GuitarAudioProcessor(new NoteEventQueue(16), new SmoothedParameter(distortionLevel, 1));
+        }
+    }
+
+    private final GuitarString string = new GuitarString();
+    private final double[] block = new double[AudioEngine.BLOCK_SIZE];
+
+    @Setup
+    public void setUp() {
+        string.pluck(AudioConstants.noteFrequencies.get("A2"), 1.0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(AudioEngine.BLOCK_SIZE)
+    public double[] guitarString() {
+        if (!string.isActive()) string.pluck(AudioConstants.noteFrequencies.get("A2"), 1.0);
+        string.render(block, 0, AudioEngine.BLOCK_SIZE);
+        return block;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(AudioEngine.BLOCK_SIZE)
+    public double[] audioProcessorMix(MixState state) {
+        GuitarString[] strings = state.processor.strings;
+        for (int i = 0; i < STRINGS.length; i++) {
+            if (!strings[i].isActive()) strings[i].pluck(AudioConstants.noteFrequencies.get(STRINGS[i]), 1.0);
+        }
+        Arrays.fill(state.mix, 0.0);
+        state.processor.render(state.mix, AudioEngine.BLOCK_SIZE);
+        return state.mix;
+    }
+}
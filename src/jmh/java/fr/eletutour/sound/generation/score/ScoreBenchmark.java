@@ -0,0 +1,48 @@
+package fr.eletutour.sound.generation.score;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Score rendering on the producer thread of the score player, in nanoseconds per sample. The score starts over
+ * when it ends so every call renders a full block.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoreBenchmark {
+
+    @Param({"SINE", "SAWTOOTH"})
+    public AudioConstants.Waveform waveform;
+
+    // One block of the score player ring per call
+    private final double[] block = new double[AudioEngine.BLOCK_SIZE];
+    private Score score;
+    private ScoreRenderer renderer;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("partitions/imperial_march.txt")) {
+            score = Score.parse(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList());
+        }
+        renderer = new ScoreRenderer(score, waveform, AudioConstants.SAMPLE_RATE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(AudioEngine.BLOCK_SIZE)
+    public double[] scoreRenderer() {
+        if (renderer.render(block, 0, AudioEngine.BLOCK_SIZE) < AudioEngine.BLOCK_SIZE) {
+            renderer = new ScoreRenderer(score, waveform, AudioConstants.SAMPLE_RATE);
+        }
+        return block;
+    }
+}
@@ -0,0 +1,41 @@
+package fr.eletutour.sound.generation.synthe;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single sustained synthesiser voice, in nanoseconds per sample. The controls panel is never shown,
+ * so this runs headless.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class VoiceBenchmark {
+
+    private final double[] mix = new double[AudioEngine.BLOCK_SIZE];
+    private Voice voice;
+    private SynthControlsPanel controlsPanel;
+
+    @Setup
+    public void setUp() {
+        controlsPanel = new SynthControlsPanel();
+        voice = new Voice();
+        voice.press('h', AudioConstants.noteFrequencies.get("A4"));
+    }
+
+    /** One block as rendered by the sound loop, including the parameter snapshot. */
+    @Benchmark
+    @OperationsPerInvocation(AudioEngine.BLOCK_SIZE)
+    public double[] render() {
+        Arrays.fill(mix, 0.0);
+        voice.render(mix, 0, AudioEngine.BLOCK_SIZE, controlsPanel.snapshot());
+        return mix;
+    }
+}
@@ -0,0 +1,91 @@
+package fr.eletutour.sound.analyser;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Une source d'échantillons mono normalisés (-1.0 .. 1.0) pour les analyseurs : le micro, un fichier WAV
+ * ou un signal synthétique.
+ * <p>
+ * Le micro impose son rythme ; les autres sources produisent aussi vite qu'on les lit, ce qui permet de
+ * profiler l'analyse à pleine vitesse et de façon reproductible, ou bien sont {@link #paced(CaptureSource)
+ * cadencées} au temps réel pour rejouer un enregistrement dans le visualiseur comme s'il venait du micro.
+ */
+public interface CaptureSource extends AutoCloseable {
+
+    /**
+     * @return La fréquence d'échantillonnage des échantillons lus, en Hz.
+     */
+    double getSampleRate();
+
+    /**
+     * @return true si la source produit au rythme du temps réel. Sinon, le consommateur doit freiner la
+     *         capture plutôt que perdre des échantillons (politique {@link SampleRingBuffer.OverflowPolicy#BLOCK}).
+     */
+    boolean isRealTime();
+
+    /**
+     * Lit les échantillons suivants, en attendant si la source est cadencée.
+     * @param samples Le tableau de destination.
+     * @param offset L'indice du premier échantillon écrit.
+     * @param length Le nombre maximal d'échantillons à lire.
+     * @return Le nombre d'échantillons lus, ou -1 à la fin de la source.
+     * @throws IOException Si la lecture a échoué.
+     */
+    int read(double[] samples, int offset, int length) throws IOException;
+
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Cadence une source au temps réel.
+     * @param source La source à cadencer.
+     * @return La source elle-même si elle est déjà temps réel.
+     */
+    static CaptureSource paced(CaptureSource source) {
+        return source.isRealTime() ? source : new PacedCaptureSource(source);
+    }
+
+    /**
+     * Ouvre la source décrite par les options de la ligne de commande d'un analyseur :
+     * {@code --source=mic} (par défaut), {@code --source=sweep}, {@code --source=noise}, {@code --source=notes}
+     * ou {@code --source=fichier.wav}, et {@code --fast} pour lire les fichiers et signaux synthétiques à
+     * pleine vitesse plutôt qu'en temps réel. Les autres arguments sont ignorés.
+     * @param args Les arguments de la ligne de commande.
+     * @return La source ouverte.
+     * @throws IOException Si la source ne peut pas être ouverte.
+     */
+    static CaptureSource fromArguments(String[] args) throws IOException {
+        String spec = "mic";
+        boolean fast = false;
+        for (String arg : args) {
+            if (arg.startsWith("--source=")) spec = arg.substring("--source=".length());
+            else if (arg.equals("--fast")) fast = true;
+        }
+
+        CaptureSource source = switch (spec.toLowerCase()) {
+            case "mic" -> new MicrophoneSource(AudioConstants.SAMPLE_RATE,
+                    AudioConstants.SAMPLE_COUNT * AudioConstants.BYTES_PER_SAMPLE * 2);
+            case "sweep" -> new SyntheticSource(SyntheticSource.Signal.SWEEP, AudioConstants.SAMPLE_RATE,
+                    SyntheticSource.DEFAULT_DURATION, SyntheticSource.DEFAULT_SEED);
+            case "noise" -> new SyntheticSource(SyntheticSource.Signal.NOISE, AudioConstants.SAMPLE_RATE,
+                    SyntheticSource.DEFAULT_DURATION, SyntheticSource.DEFAULT_SEED);
+            case "notes" -> new SyntheticSource(SyntheticSource.Signal.NOTES, AudioConstants.SAMPLE_RATE,
+                    SyntheticSource.DEFAULT_DURATION, SyntheticSource.DEFAULT_SEED);
+            default -> new WavFileSource(Path.of(spec));
+        };
+        return fast ? source : paced(source);
+    }
+
+    /**
+     * Retire les options de source des arguments, pour ne garder que les arguments positionnels.
+     * @param args Les arguments de la ligne de commande.
+     * @return Les arguments qui ne commencent pas par {@code --}.
+     */
+    static String[] positionalArguments(String[] args) {
+        return Arrays.stream(args).filter(arg -> !arg.startsWith("--")).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,124 @@
+package fr.eletutour.sound.analyser;
+
+import java.util.Arrays;
+
+/**
+ * Décimateur FIR anti-repliement placé entre la conversion PCM et la FFT.
+ * <p>
+ * À 96 kHz, l'essentiel des bins d'une FFT décrit des ultrasons jamais affichés. Diviser la fréquence
+ * d'échantillonnage par {@code factor} après un filtre passe-bas permet d'obtenir la même résolution avec
+ * une FFT {@code factor} fois plus courte : 1024 points à 12 kHz couvrent 0–6 kHz par pas de 11,7 Hz.
+ * <p>
+ * Le filtre est un sinus cardinal fenêtré par Blackman-Harris, coupant à 98 % de la nouvelle fréquence de
+ * Nyquist. La bande passante est plate jusqu'à 90 % de celle-ci (-0,06 dB à 5,4 kHz pour une décimation par 8,
+ * -0,26 dB à 5,5 kHz) ; au-delà, la transition replie un peu de signal sur les derniers 10 % du spectre, et tout
+ * ce qui se replierait plus bas est atténué d'environ 105 dB. Seul un échantillon de sortie sur {@code factor}
+ * est calculé (forme polyphase) : le coût est de
+ * {@value #TAPS_PER_PHASE} multiplications par échantillon d'entrée, quel que soit le facteur. L'état est
+ * conservé d'un appel à l'autre et aucun tableau n'est alloué après la construction ; une instance n'est
+ * pas thread-safe.
+ */
+public final class Decimator {
+
+    // Nombre de coefficients par phase : fixe la raideur de la bande de transition
+    private static final int TAPS_PER_PHASE = 64;
+    // Fréquence de coupure, relative à la fréquence de Nyquist après décimation
+    private static final double CUTOFF = 0.98;
+
+    private final int factor;
+    private final double[] coefficients;
+
+    // Historique dupliqué : les taps derniers échantillons sont toujours contigus, sans modulo dans la boucle
+    private final double[] history;
+    private int position = 0;
+    private int samplesUntilNextOutput;
+
+    /**
+     * @param factor Le facteur de décimation (1 pour laisser le signal inchangé).
+     */
+    public Decimator(int factor) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("Le facteur de décimation doit être strictement positif : " + factor);
+        }
+        this.factor = factor;
+        this.samplesUntilNextOutput = factor;
+
+        int taps = factor == 1 ? 0 : TAPS_PER_PHASE * factor + 1;
+        this.coefficients = new double[taps];
+        this.history = new double[2 * taps];
+
+        // Sinus cardinal centré, fenêtré de façon symétrique puis normalisé pour un gain unitaire en continu
+        double cutoff = CUTOFF / (2.0 * factor);
+        int center = taps / 2;
+        double sum = 0.0;
+        for (int i = 0; i < taps; i++) {
+            int n = i - center;
+            double sinc = n == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * n) / (Math.PI * n);
+            coefficients[i] = sinc * WindowFunction.BLACKMAN_HARRIS.coefficient(i, taps - 1);
+            sum += coefficients[i];
+        }
+        for (int i = 0; i < taps; i++) {
+            coefficients[i] /= sum;
+        }
+    }
+
+    /**
+     * @return Le facteur de décimation.
+     */
+    public int getFactor() {
+        return factor;
+    }
+
+    /**
+     * @param inputLength Un nombre d'échantillons d'entrée.
+     * @return Le nombre maximal d'échantillons produits pour cette entrée, pour dimensionner la sortie.
+     */
+    public int maxOutputLength(int inputLength) {
+        return (inputLength + factor - 1) / factor;
+    }
+
+    /**
+     * Filtre et décime un bloc d'échantillons.
+     * @param input Le tampon source.
+     * @param inputOffset L'indice du premier échantillon à consommer.
+     * @param length Le nombre d'échantillons à consommer.
+     * @param output Le tampon destination, d'au moins {@link #maxOutputLength(int)} places après outputOffset.
+     * @param outputOffset L'indice où écrire le premier échantillon produit.
+     * @return Le nombre d'échantillons écrits.
+     */
+    public int process(double[] input, int inputOffset, int length, double[] output, int outputOffset) {
+        if (factor == 1) {
+            System.arraycopy(input, inputOffset, output, outputOffset, length);
+            return length;
+        }
+
+        int taps = coefficients.length;
+        int written = 0;
+        for (int i = inputOffset; i < inputOffset + length; i++) {
+            double x = input[i];
+            history[position] = x;
+            history[position + taps] = x;
+            position = position + 1 == taps ? 0 : position + 1;
+
+            if (--samplesUntilNextOutput == 0) {
+                // Les taps derniers échantillons occupent history[position .. position + taps - 1]
+                double sum = 0.0;
+                for (int j = 0; j < taps; j++) {
+                    sum += coefficients[j] * history[position + j];
+                }
+                output[outputOffset + written++] = sum;
+                samplesUntilNextOutput = factor;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Vide l'historique du filtre, par exemple après une interruption du flux.
+     */
+    public void reset() {
+        Arrays.fill(history, 0.0);
+        position = 0;
+        samplesUntilNextOutput = factor;
+    }
+}
@@ -0,0 +1,155 @@
+package fr.eletutour.sound.analyser;
+
+/**
+ * Plan de FFT radix-2 (Cooley–Tukey) réutilisable, dimensionné une seule fois pour une taille donnée.
+ * <p>
+ * Les tables de cosinus/sinus et la permutation bit-reverse sont précalculées à la construction :
+ * les facteurs de rotation ne sont plus obtenus par récurrence (qui dérive numériquement) et aucune
+ * allocation n'a lieu par trame, les résultats étant écrits dans des tampons fournis par l'appelant.
+ * <p>
+ * Pour un signal réel, {@link #magnitudes(double[], double[])} empaquette les n échantillons en n/2
+ * nombres complexes, effectue une FFT complexe de n/2 points puis sépare les spectres pair et impair :
+ * on économise ainsi la moitié des papillons par rapport à une FFT complexe à partie imaginaire nulle.
+ * <p>
+ * Une instance possède ses propres tampons de travail : elle n'est pas thread-safe,
+ * chaque thread d'analyse doit utiliser son propre plan.
+ */
+public final class FftPlan {
+
+    private final int size;
+    private final double[] cosTable;
+    private final double[] sinTable;
+    private final int[] bitReverse;
+
+    // Tampons de travail (n/2 points complexes) réutilisés par magnitudes()
+    private final double[] real;
+    private final double[] imag;
+
+    /**
+     * Construit un plan pour des transformées de {@code size} points.
+     * @param size La taille de la FFT, doit être une puissance de 2.
+     */
+    public FftPlan(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("La taille de la FFT doit être une puissance de 2 : " + size);
+        }
+        this.size = size;
+
+        int half = size / 2;
+        cosTable = new double[half];
+        sinTable = new double[half];
+        for (int k = 0; k < half; k++) {
+            double angle = -2 * Math.PI * k / size;
+            cosTable[k] = Math.cos(angle);
+            sinTable[k] = Math.sin(angle);
+        }
+
+        int levels = 31 - Integer.numberOfLeadingZeros(size);
+        bitReverse = new int[size];
+        for (int i = 0; i < size; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> (32 - levels);
+        }
+
+        real = new double[half];
+        imag = new double[half];
+    }
+
+    /**
+     * @return Le nombre de points de la transformée.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * FFT complexe en place.
+     * @param real Parties réelles, de longueur au moins {@link #size()}. Remplacées par le résultat.
+     * @param imag Parties imaginaires, de longueur au moins {@link #size()}. Remplacées par le résultat.
+     */
+    public void transform(double[] real, double[] imag) {
+        transform(real, imag, size, 0);
+    }
+
+    /**
+     * FFT complexe en place sur les {@code n} premiers points, {@code n} divisant {@link #size()}.
+     * Les facteurs de rotation d'une FFT de n points sont un sous-échantillonnage de ceux de size points,
+     * et l'indice bit-reverse sur log2(n) bits s'obtient en décalant celui calculé sur log2(size) bits.
+     */
+    private void transform(double[] real, double[] imag, int n, int reverseShift) {
+        // Permutation bit-reverse
+        for (int i = 0; i < n; i++) {
+            int j = bitReverse[i] >>> reverseShift;
+            if (j > i) {
+                double tmpR = real[i];
+                real[i] = real[j];
+                real[j] = tmpR;
+                double tmpI = imag[i];
+                imag[i] = imag[j];
+                imag[j] = tmpI;
+            }
+        }
+
+        for (int span = 2; span <= n; span <<= 1) {
+            int half = span >> 1;
+            int tableStep = size / span;
+
+            for (int i = 0; i < n; i += span) {
+                for (int j = 0, t = 0; j < half; j++, t += tableStep) {
+                    int even = i + j;
+                    int odd = even + half;
+
+                    double wR = cosTable[t];
+                    double wI = sinTable[t];
+                    double rOdd = real[odd];
+                    double iOdd = imag[odd];
+
+                    double tR = rOdd * wR - iOdd * wI;
+                    double tI = rOdd * wI + iOdd * wR;
+
+                    real[odd] = real[even] - tR;
+                    imag[odd] = imag[even] - tI;
+                    real[even] += tR;
+                    imag[even] += tI;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calcule le spectre d'amplitude d'un signal réel via une FFT complexe de n/2 points.
+     * @param input Les {@link #size()} échantillons à transformer (non modifiés).
+     * @param magnitudes Tampon de sortie recevant magnitudes[0..n/2-1].
+     */
+    public void magnitudes(double[] input, double[] magnitudes) {
+        int half = size / 2;
+
+        // Empaquetage : z[k] = x[2k] + i.x[2k+1]
+        for (int k = 0; k < half; k++) {
+            real[k] = input[2 * k];
+            imag[k] = input[2 * k + 1];
+        }
+        transform(real, imag, half, 1);
+
+        // Séparation : X[k] = Zpair[k] + W^k . Zimpair[k], avec W = exp(-2iπ/n)
+        for (int k = 0; k < half; k++) {
+            int mirror = (half - k) & (half - 1);
+            double aR = real[k];
+            double aI = imag[k];
+            double bR = real[mirror];
+            double bI = -imag[mirror];
+
+            // Zpair = (Z[k] + conj(Z[n/2-k])) / 2
+            double evenR = 0.5 * (aR + bR);
+            double evenI = 0.5 * (aI + bI);
+            // Zimpair = -i . (Z[k] - conj(Z[n/2-k])) / 2
+            double oddR = 0.5 * (aI - bI);
+            double oddI = -0.5 * (aR - bR);
+
+            double wR = cosTable[k];
+            double wI = sinTable[k];
+            double xR = evenR + oddR * wR - oddI * wI;
+            double xI = evenI + oddR * wI + oddI * wR;
+            magnitudes[k] = Math.sqrt(xR * xR + xI * xI);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package fr.eletutour.sound.analyser;
+
+/**
+ * Banc de filtres de Goertzel accordés exactement sur les notes de {@link NoteTable}.
+ * <p>
+ * Quand seules les notes de la gamme tempérée nous intéressent, une FFT complète par trame calcule des
+ * milliers de bins inutiles, mal alignés sur les notes. Chaque filtre est ici un résonateur du second ordre
+ * mis à jour à chaque échantillon (une multiplication et deux additions) sur un bloc dont la longueur est
+ * adaptée à sa note : la résolution {@code sampleRate / longueur} égale l'écart avec la note voisine la
+ * plus proche, si bien que le premier zéro de la réponse tombe sur cette voisine. Les notes aiguës sont
+ * donc mesurées sur quelques millisecondes et les graves sur plusieurs centaines.
+ * <p>
+ * Tous les {@code hopSize} échantillons, l'amplitude du dernier bloc terminé de chaque note est transmise
+ * au {@link NoteListener}. Les notes au-delà de la fréquence de Nyquist restent à zéro. Une instance ne
+ * partage aucun état et ne coûte que quelques tableaux de la taille de la table : on peut en faire tourner
+ * une par entrée audio. Elle n'est pas thread-safe et doit être alimentée par un seul thread.
+ */
+public final class GoertzelFilterBank {
+
+    /**
+     * Reçoit l'activité des notes à chaque pas.
+     */
+    @FunctionalInterface
+    public interface NoteListener {
+
+        /**
+         * Appelé sur le thread qui alimente le banc. Le tableau est réutilisé au pas suivant :
+         * il faut le copier pour le conserver.
+         * @param amplitudes L'amplitude crête de chaque note, indexée comme {@link NoteTable}.
+         */
+        void onNotes(double[] amplitudes);
+    }
+
+    // Durée maximale d'un bloc, en secondes, pour borner la latence des notes les plus graves
+    private static final double MAX_BLOCK_SECONDS = 1.0;
+
+    private final int hopSize;
+    private final NoteListener listener;
+
+    private final double[] coefficients;
+    private final int[] blockLengths;
+    private final int[] remaining;
+    private final double[] state1;
+    private final double[] state2;
+    private final double[] amplitudes;
+    // Les notes étant triées, les filtres sous la fréquence de Nyquist forment un préfixe de la table
+    private final int activeFilters;
+    private int samplesUntilNextBlock;
+    private int samplesUntilNextHop;
+
+    /**
+     * @param sampleRate La fréquence d'échantillonnage du signal, en Hz.
+     * @param hopSize Le nombre d'échantillons entre deux notifications.
+     * @param listener Le destinataire des amplitudes.
+     */
+    public GoertzelFilterBank(double sampleRate, int hopSize, NoteListener listener) {
+        if (hopSize <= 0) {
+            throw new IllegalArgumentException("Le pas doit être strictement positif : " + hopSize);
+        }
+        this.hopSize = hopSize;
+        this.listener = listener;
+
+        int notes = NoteTable.size();
+        this.coefficients = new double[notes];
+        this.blockLengths = new int[notes];
+        this.remaining = new int[notes];
+        this.state1 = new double[notes];
+        this.state2 = new double[notes];
+        this.amplitudes = new double[notes];
+        this.samplesUntilNextHop = hopSize;
+
+        int maxBlock = (int) (sampleRate * MAX_BLOCK_SECONDS);
+        int active = 0;
+        for (int k = 0; k < notes; k++) {
+            double frequency = NoteTable.frequency(k);
+            if (frequency >= sampleRate / 2) break;
+            active++;
+
+            double gap = Double.MAX_VALUE;
+            if (k > 0) gap = frequency - NoteTable.frequency(k - 1);
+            if (k < notes - 1) gap = Math.min(gap, NoteTable.frequency(k + 1) - frequency);
+            blockLengths[k] = (int) Math.min(maxBlock, Math.ceil(sampleRate / gap));
+            coefficients[k] = 2.0 * Math.cos(2.0 * Math.PI * frequency / sampleRate);
+            remaining[k] = blockLengths[k];
+        }
+        this.activeFilters = active;
+        this.samplesUntilNextBlock = minBlockLength();
+    }
+
+    /**
+     * @return Le nombre d'échantillons entre deux notifications.
+     */
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    /**
+     * @param index L'indice de la note dans {@link NoteTable}.
+     * @return La longueur du bloc d'analyse de cette note, ou 0 si elle dépasse la fréquence de Nyquist.
+     */
+    public int getBlockLength(int index) {
+        return blockLengths[index];
+    }
+
+    /**
+     * Fait avancer tous les filtres et notifie l'écouteur à chaque pas franchi.
+     * @param samples Le tampon source.
+     * @param offset L'indice du premier échantillon à consommer.
+     * @param length Le nombre d'échantillons à consommer.
+     */
+    public void process(double[] samples, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            // Segment sans fin de bloc ni de pas : la boucle interne, sans branchement, porte sur des
+            // filtres indépendants et se vectorise, au lieu d'enchaîner la récurrence d'un seul filtre
+            int count = Math.min(end - offset, Math.min(samplesUntilNextHop, samplesUntilNextBlock));
+            int i = offset;
+            // Quatre échantillons par passage : l'état de chaque filtre reste en registre entre eux
+            for (; i + 3 < offset + count; i += 4) {
+                double x0 = samples[i];
+                double x1 = samples[i + 1];
+                double x2 = samples[i + 2];
+                double x3 = samples[i + 3];
+                for (int k = 0; k < activeFilters; k++) {
+                    double c = coefficients[k];
+                    double s1 = state1[k];
+                    double s2 = state2[k];
+                    s2 = x0 + c * s1 - s2;
+                    s1 = x1 + c * s2 - s1;
+                    s2 = x2 + c * s1 - s2;
+                    s1 = x3 + c * s2 - s1;
+                    state1[k] = s1;
+                    state2[k] = s2;
+                }
+            }
+            for (; i < offset + count; i++) {
+                double x = samples[i];
+                for (int k = 0; k < activeFilters; k++) {
+                    double s0 = x + coefficients[k] * state1[k] - state2[k];
+                    state2[k] = state1[k];
+                    state1[k] = s0;
+                }
+            }
+            offset += count;
+            samplesUntilNextHop -= count;
+            completeBlocks(count);
+
+            if (samplesUntilNextHop == 0) {
+                listener.onNotes(amplitudes);
+                samplesUntilNextHop = hopSize;
+            }
+        }
+    }
+
+    /**
+     * Remet tous les filtres à zéro, par exemple après une interruption du flux.
+     */
+    public void reset() {
+        for (int k = 0; k < activeFilters; k++) {
+            remaining[k] = blockLengths[k];
+            state1[k] = 0.0;
+            state2[k] = 0.0;
+            amplitudes[k] = 0.0;
+        }
+        samplesUntilNextBlock = minBlockLength();
+        samplesUntilNextHop = hopSize;
+    }
+
+    private void completeBlocks(int count) {
+        int next = Integer.MAX_VALUE;
+        for (int k = 0; k < activeFilters; k++) {
+            remaining[k] -= count;
+            if (remaining[k] == 0) {
+                // |X|² en fin de bloc, valable aussi pour une fréquence hors grille de la DFT
+                double s1 = state1[k];
+                double s2 = state2[k];
+                double power = s1 * s1 + s2 * s2 - coefficients[k] * s1 * s2;
+                amplitudes[k] = 2.0 * Math.sqrt(Math.max(0.0, power)) / blockLengths[k];
+                remaining[k] = blockLengths[k];
+                state1[k] = 0.0;
+                state2[k] = 0.0;
+            }
+            next = Math.min(next, remaining[k]);
+        }
+        samplesUntilNextBlock = next;
+    }
+
+    private int minBlockLength() {
+        int min = Integer.MAX_VALUE;
+        for (int k = 0; k < activeFilters; k++) {
+            min = Math.min(min, blockLengths[k]);
+        }
+        return min;
+    }
+}
@@ -2,13 +2,11 @@ package fr.eletutour.sound.analyser;
 
 import fr.eletutour.sound.constant.AudioConstants;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.TargetDataLine;
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class LiveAudioSpectrumVisualizer extends JPanel {
@@ -35,94 +33,156 @@ public class LiveAudioSpectrumVisualizer extends JPanel {
     }
 
     private final VisualizationMode mode;
-    private volatile double[] magnitudes = new double[AudioConstants.SAMPLE_COUNT / 2];
-    private volatile double[] samples = new double[AudioConstants.SAMPLE_COUNT];
-    private final double[] smoothedMagnitudes = new double[AudioConstants.SAMPLE_COUNT / 2];
+    // Facteur de décimation avant la FFT : les trames raccourcissent d'autant, la résolution reste la même
+    private final int decimation;
+    private final int frameSize;
+    private volatile double[] magnitudes;
+    private volatile double[] samples;
+    private final double[] smoothedMagnitudes;
+
+    // Tampons arrière : le thread de capture écrit dedans puis les publie en échangeant avec les tampons affichés
+    private double[] backMagnitudes;
+    private double[] backSamples;
     private final AtomicBoolean running = new AtomicBoolean(true);
 
+    // Tampon et fréquence d'échantillonnage de la capture en cours, lus par l'affichage
+    private volatile SampleRingBuffer ringBuffer;
+    private volatile double sampleRate = AudioConstants.SAMPLE_RATE;
+
     /**
      * Constructeur principal qui initialise le panneau avec un mode de visualisation.
      * @param mode Le mode à utiliser pour le rendu.
      */
     public LiveAudioSpectrumVisualizer(VisualizationMode mode) {
+        this(mode, 1);
+    }
+
+    /**
+     * Initialise le panneau avec un mode de visualisation et une décimation avant l'analyse.
+     * @param mode Le mode à utiliser pour le rendu.
+     * @param decimation Le facteur de décimation, puissance de 2 (1 pour analyser le signal à pleine fréquence).
+     */
+    public LiveAudioSpectrumVisualizer(VisualizationMode mode, int decimation) {
+        if (decimation < 1 || Integer.bitCount(decimation) != 1 || decimation > AudioConstants.HOP_SIZE) {
+            throw new IllegalArgumentException("Le facteur de décimation doit être une puissance de 2 : " + decimation);
+        }
         this.mode = mode;
+        this.decimation = decimation;
+        this.frameSize = AudioConstants.SAMPLE_COUNT / decimation;
+        this.magnitudes = new double[frameSize / 2];
+        this.samples = new double[frameSize];
+        this.smoothedMagnitudes = new double[frameSize / 2];
+        this.backMagnitudes = new double[frameSize / 2];
+        this.backSamples = new double[frameSize];
         setBackground(Color.BLACK);
     }
 
     /**
      * Point d'entrée de l'application.
-     * @param args Accepte un argument optionnel pour définir le mode de visualisation (bars, circle, wave).
+     * @param args Accepte un argument optionnel pour définir le mode de visualisation (bars, circle, wave),
+     *             suivi d'un facteur de décimation optionnel (2, 4, 8), ainsi que les options de source de
+     *             {@link CaptureSource#fromArguments(String[])} pour rejouer un fichier ou un signal de test.
      */
-     static void main(String[] args) {
-        VisualizationMode mode = (args.length > 0) ? VisualizationMode.fromString(args[0]) : VisualizationMode.BARS;
+     static void main(String[] args) throws IOException {
+        String[] positional = CaptureSource.positionalArguments(args);
+        VisualizationMode mode = (positional.length > 0) ? VisualizationMode.fromString(positional[0]) : VisualizationMode.BARS;
+        int decimation = (positional.length > 1) ? Integer.parseInt(positional[1]) : 1;
+        CaptureSource source = CaptureSource.fromArguments(args);
 
         JFrame frame = new JFrame("🌈 Spectre Audio Vivant — " + mode);
-        LiveAudioSpectrumVisualizer panel = new LiveAudioSpectrumVisualizer(mode);
+        LiveAudioSpectrumVisualizer panel = new LiveAudioSpectrumVisualizer(mode, decimation);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(900, 500);
         frame.add(panel);
         frame.setVisible(true);
 
-        panel.startCapture();
+        panel.startCapture(source);
     }
 
-    public void startCapture() {
-        Thread captureThread = new Thread(() -> {
-            try {
-                AudioFormat format = new AudioFormat(AudioConstants.SAMPLE_RATE, 16, 1, true, false);
-                DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
-                TargetDataLine line = (TargetDataLine) AudioSystem.getLine(info);
-                line.open(format, AudioConstants.SAMPLE_COUNT * AudioConstants.BYTES_PER_SAMPLE * 2);
-                line.start();
+    /**
+     * Démarre la capture et l'analyse sur deux threads. La source est fermée à la fin de la capture.
+     * @param source La source des échantillons : le micro, ou un fichier ou un signal de test rejoué.
+     */
+    public void startCapture(CaptureSource source) {
+        // Une seconde d'audio entre la capture et l'analyse. Les plus anciens échantillons sont perdus en cas de
+        // retard sur une source temps réel ; une source plus rapide attend l'analyse.
+        SampleRingBuffer ringBuffer = new SampleRingBuffer((int) AudioConstants.SAMPLE_RATE, source.isRealTime()
+                ? SampleRingBuffer.OverflowPolicy.DROP_OLDEST : SampleRingBuffer.OverflowPolicy.BLOCK);
+        this.ringBuffer = ringBuffer;
+        this.sampleRate = source.getSampleRate();
 
-                byte[] buffer = new byte[AudioConstants.SAMPLE_COUNT * AudioConstants.BYTES_PER_SAMPLE];
-                double[] currentSamples = new double[AudioConstants.SAMPLE_COUNT];
+        Thread captureThread = new Thread(() -> {
+            try (source) {
+                double[] chunk = new double[AudioConstants.HOP_SIZE];
 
                 IO.println("🎙️ Capture en cours... ferme la fenêtre pour arrêter.");
 
+                // Le thread de capture ne fait que lire la source et remplir le tampon circulaire
                 while (running.get()) {
-                    int bytesRead = line.read(buffer, 0, buffer.length);
-                    if (bytesRead <= 0) continue;
-
-                    int samplesRead = Math.min(AudioConstants.SAMPLE_COUNT, bytesRead / AudioConstants.BYTES_PER_SAMPLE);
-                    for (int i = 0, s = 0; s < samplesRead; i += 2, s++) {
-                        int low = buffer[i] & 0xFF;
-                        int high = buffer[i + 1];
-                        int value = (high << 8) | low;
-                        currentSamples[s] = value / 32768.0;
-                    }
-                    if (samplesRead < AudioConstants.SAMPLE_COUNT) {
-                        Arrays.fill(currentSamples, samplesRead, AudioConstants.SAMPLE_COUNT, 0.0);
-                    }
-
-                    // Copie thread-safe pour le rendu de la forme d'onde
-                    this.samples = Arrays.copyOf(currentSamples, currentSamples.length);
-
-                    double[] newMagnitudes = computeFFT(currentSamples);
-
-                    // Lissage exponentiel pour les magnitudes
-                    for (int i = 0; i < newMagnitudes.length; i++) {
-                        smoothedMagnitudes[i] = 0.8 * smoothedMagnitudes[i] + 0.2 * newMagnitudes[i];
-                    }
-
-                    // Copie thread-safe pour le rendu du spectre
-                    this.magnitudes = Arrays.copyOf(smoothedMagnitudes, smoothedMagnitudes.length);
-                    Thread.sleep(10);
+                    int samplesRead = source.read(chunk, 0, chunk.length);
+                    if (samplesRead < 0) break;
+                    ringBuffer.write(chunk, 0, samplesRead);
                 }
-
-                line.stop();
-                line.close();
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                ringBuffer.close();
             }
-        });
+        }, "audio-capture");
+
+        Thread analysisThread = new Thread(() -> {
+            double[] chunk = new double[AudioConstants.HOP_SIZE];
+            Decimator decimator = new Decimator(decimation);
+            double[] decimated = new double[decimator.maxOutputLength(chunk.length)];
+            ShortTimeFourierTransform stft = new ShortTimeFourierTransform(
+                    frameSize, AudioConstants.HOP_SIZE / decimation, WindowFunction.HANN, this::publishFrame);
+            long analysedSamples = 0;
+            long start = System.nanoTime();
+            try {
+                int count;
+                while ((count = ringBuffer.read(chunk, 0, chunk.length, 100, TimeUnit.MILLISECONDS)) >= 0) {
+                    analysedSamples += count;
+                    count = decimator.process(chunk, 0, count, decimated, 0);
+                    stft.process(decimated, 0, count);
+                }
+                double elapsed = (System.nanoTime() - start) / 1e9;
+                double duration = analysedSamples / source.getSampleRate();
+                IO.println(String.format("✅ Fin de la source : %.1f s d'audio analysées en %.1f s (%.1fx temps réel)",
+                        duration, elapsed, duration / elapsed));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "audio-analysis");
 
         captureThread.start();
+        analysisThread.start();
         Timer timer = new Timer(33, e -> repaint());
         timer.start();
         Runtime.getRuntime().addShutdownHook(new Thread(() -> running.set(false)));
     }
 
+    /**
+     * Reçoit chaque trame de la STFT sur le thread d'analyse, lisse le spectre et publie les tampons affichés.
+     */
+    private void publishFrame(double[] frame, double[] newMagnitudes) {
+        // Publication thread-safe pour le rendu de la forme d'onde
+        System.arraycopy(frame, 0, backSamples, 0, frame.length);
+        double[] shownSamples = this.samples;
+        this.samples = backSamples;
+        backSamples = shownSamples;
+
+        // Lissage exponentiel pour les magnitudes
+        for (int i = 0; i < newMagnitudes.length; i++) {
+            smoothedMagnitudes[i] = 0.8 * smoothedMagnitudes[i] + 0.2 * newMagnitudes[i];
+        }
+
+        // Publication thread-safe pour le rendu du spectre
+        System.arraycopy(smoothedMagnitudes, 0, backMagnitudes, 0, smoothedMagnitudes.length);
+        double[] shownMagnitudes = this.magnitudes;
+        this.magnitudes = backMagnitudes;
+        backMagnitudes = shownMagnitudes;
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -146,6 +206,14 @@ public class LiveAudioSpectrumVisualizer extends JPanel {
 
         g2.setColor(Color.WHITE);
         g2.drawString("Mode: " + mode, 10, 20);
+        // Bande affichée et résolution, à la fréquence d'échantillonnage après décimation
+        double sampleRate = this.sampleRate / decimation;
+        g2.drawString(String.format("Bande: 0–%.1f kHz, résolution %.1f Hz", sampleRate / 2000, sampleRate / frameSize), 10, 40);
+        SampleRingBuffer ringBuffer = this.ringBuffer;
+        long dropped = ringBuffer == null ? 0 : ringBuffer.getDroppedSamples();
+        if (dropped > 0) {
+            g2.drawString("Échantillons perdus: " + dropped, 10, 60);
+        }
     }
 
     private void drawBarChart(Graphics2D g2) {
@@ -222,54 +290,4 @@ public class LiveAudioSpectrumVisualizer extends JPanel {
             g2.drawLine(x1, y1, x2, y2);
         }
     }
-
-    private static double[] computeFFT(double[] input) {
-        int n = input.length;
-        double[] real = Arrays.copyOf(input, n);
-        double[] imag = new double[n];
-
-        int levels = 31 - Integer.numberOfLeadingZeros(n);
-        for (int i = 0; i < n; i++) {
-            int j = Integer.reverse(i) >>> (32 - levels);
-            if (j > i) {
-                double tmpR = real[i];
-                real[i] = real[j];
-                real[j] = tmpR;
-            }
-        }
-
-        for (int size = 2; size <= n; size <<= 1) {
-            int half = size >> 1;
-            double angle = -2 * Math.PI / size;
-            double wStepR = Math.cos(angle);
-            double wStepI = Math.sin(angle);
-
-            for (int i = 0; i < n; i += size) {
-                double wR = 1.0;
-                double wI = 0.0;
-                for (int j = 0; j < half; j++) {
-                    int even = i + j;
-                    int odd = i + j + half;
-                    double rOdd = real[odd];
-                    double iOdd = imag[odd];
-                    double tR = rOdd * wR - iOdd * wI;
-                    double tI = rOdd * wI + iOdd * wR;
-                    real[odd] = real[even] - tR;
-                    imag[odd] = imag[even] - tI;
-                    real[even] += tR;
-                    imag[even] += tI;
-
-                    double newWR = wR * wStepR - wI * wStepI;
-                    wI = wR * wStepI + wI * wStepR;
-                    wR = newWR;
-                }
-            }
-        }
-
-        double[] mags = new double[n / 2];
-        for (int i = 0; i < n / 2; i++) {
-            mags[i] = Math.hypot(real[i], imag[i]);
-        }
-        return mags;
-    }
 }
\ No newline at end of file
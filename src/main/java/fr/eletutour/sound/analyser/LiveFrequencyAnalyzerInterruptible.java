@@ -1,159 +1,200 @@
 package fr.eletutour.sound.analyser;
 
 import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.io.WavRecorder;
 
-import javax.sound.sampled.AudioFileFormat.Type;
-import javax.sound.sampled.*;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.util.Arrays;
+import java.io.IOException;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LiveFrequencyAnalyzerInterruptible {
 
+    // 16 tampons directs de 64 Ko : environ 5 s de marge à 96 kHz / 16 bits si le disque ralentit
+    private static final int RECORDER_BUFFER_SIZE = 64 * 1024;
+    private static final int RECORDER_BUFFER_COUNT = 16;
 
+    // Fenêtre du détecteur de hauteur : ~21 ms à 96 kHz, prise à la fin de chaque trame
+    private static final int PITCH_WINDOW = 2048;
+
+    // Seuil d'amplitude au-dessus duquel une note est considérée comme jouée (mode "notes")
+    private static final double NOTE_ACTIVITY_THRESHOLD = 0.01;
+    private static final int MAX_ACTIVE_NOTES = 4;
+
+    /**
+     * Point d'entrée de l'analyseur.
+     * @param args Le mode ({@code fft} ou {@code notes}) et un facteur de décimation optionnels, ainsi que les
+     *             options de source de {@link CaptureSource#fromArguments(String[])} ({@code --source=...},
+     *             {@code --fast}). Seule la capture du micro est enregistrée dans {@code enregistrement.wav}.
+     */
     static void main(String[] args) throws Exception {
-        final int bufferSize = AudioConstants.SAMPLE_COUNT * AudioConstants.BYTES_PER_SAMPLE; // octets lus à chaque lecture
+        String[] positional = CaptureSource.positionalArguments(args);
+        // "fft" (par défaut) : spectre complet et détection de hauteur ; "notes" : banc de Goertzel sur la table des notes
+        final boolean notesMode = positional.length > 0 && positional[0].equalsIgnoreCase("notes");
+        // Facteur de décimation optionnel (2, 4, 8...) : même résolution avec une FFT plus courte
+        final int decimation = positional.length > 1 ? Integer.parseInt(positional[1]) : 1;
+        if (decimation < 1 || Integer.bitCount(decimation) != 1 || decimation > AudioConstants.HOP_SIZE) {
+            throw new IllegalArgumentException("Le facteur de décimation doit être une puissance de 2 : " + decimation);
+        }
 
-        AudioFormat format = new AudioFormat(AudioConstants.SAMPLE_RATE, 16, 1, true, false); // little-endian
-        DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
-        TargetDataLine microphone = (TargetDataLine) AudioSystem.getLine(info);
-        microphone.open(format, bufferSize * 4);
-        microphone.start();
+        CaptureSource source = CaptureSource.fromArguments(args);
+        boolean microphone = source instanceof MicrophoneSource;
 
         AtomicBoolean running = new AtomicBoolean(true);
-        ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+        // Enregistrement en flux vers le disque : mémoire constante quelle que soit la durée de la session.
+        // Un fichier rejoué n'est pas réenregistré, il pourrait être celui que l'on lit.
+        File outFile = new File("enregistrement.wav");
+        WavRecorder recorder = microphone
+                ? new WavRecorder(outFile.toPath(), (int) source.getSampleRate(), 1, 16, RECORDER_BUFFER_SIZE, RECORDER_BUFFER_COUNT)
+                : null;
+        // Découple la capture de l'analyse : une FFT lente ne fait plus déborder la ligne du micro.
+        // Une source plus rapide que le temps réel attend l'analyse au lieu de perdre des échantillons.
+        SampleRingBuffer ringBuffer = new SampleRingBuffer((int) AudioConstants.SAMPLE_RATE, source.isRealTime()
+                ? SampleRingBuffer.OverflowPolicy.DROP_OLDEST : SampleRingBuffer.OverflowPolicy.BLOCK);
+        AtomicLong analysedSamples = new AtomicLong();
+        long start = System.nanoTime();
 
         Thread captureThread = new Thread(() -> {
-            byte[] buffer = new byte[bufferSize];
-            double[] samples = new double[AudioConstants.SAMPLE_COUNT];
-
-            IO.println("🎤 Analyse en cours... Parle, siffle ou tape. Appuie sur Entrée pour arrêter.");
-
-            while (running.get()) {
-                int bytesRead = microphone.read(buffer, 0, buffer.length);
-                if (bytesRead <= 0) continue;
-
-                // Sauvegarde brute si on veut exporter plus tard
-                recorded.write(buffer, 0, bytesRead);
-
-                // Conversion bytes -> échantillons normalisés (-1.0 .. 1.0)
-                int samplesRead = Math.min(AudioConstants.SAMPLE_COUNT, bytesRead / AudioConstants.BYTES_PER_SAMPLE);
-                for (int i = 0, s = 0; s < samplesRead; i += 2, s++) {
-                    // little-endian -> low byte first
-                    int low = buffer[i] & 0xFF;
-                    int high = buffer[i + 1]; // sign will be preserved
-                    int value = (high << 8) | low;
-                    samples[s] = value / 32768.0; // normalisation
-                }
-                // Si on a moins d'échantillons que sampleCount, zero-pad
-                if (samplesRead < AudioConstants.SAMPLE_COUNT) {
-                    Arrays.fill(samples, samplesRead, AudioConstants.SAMPLE_COUNT, 0.0);
+            double[] samples = new double[AudioConstants.HOP_SIZE];
+            byte[] buffer = new byte[AudioConstants.HOP_SIZE * AudioConstants.BYTES_PER_SAMPLE];
+
+            IO.println(microphone
+                    ? "🎤 Analyse en cours... Parle, siffle ou tape. Appuie sur Entrée pour arrêter."
+                    : "▶️ Analyse de la source en cours... Appuie sur Entrée pour arrêter.");
+
+            try {
+                while (running.get()) {
+                    int samplesRead = source.read(samples, 0, samples.length);
+                    if (samplesRead < 0) break;
+                    if (samplesRead == 0) continue;
+
+                    if (recorder != null) {
+                        // Sauvegarde brute en 16 bits little-endian, confiée au thread d'écriture sans jamais attendre le disque
+                        for (int s = 0, i = 0; s < samplesRead; s++, i += 2) {
+                            int value = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(samples[s] * 32768.0)));
+                            buffer[i] = (byte) value;
+                            buffer[i + 1] = (byte) (value >> 8);
+                        }
+                        recorder.write(buffer, 0, samplesRead * AudioConstants.BYTES_PER_SAMPLE);
+                    }
+
+                    ringBuffer.write(samples, 0, samplesRead);
                 }
-
-                // Calcul FFT
-                double[] magnitudes = computeFFT(samples);
-
-                // Trouver pic (éviter index 0 = DC)
-                int maxIndex = 1;
-                for (int i = 2; i < magnitudes.length; i++) {
-                    if (magnitudes[i] > magnitudes[maxIndex]) maxIndex = i;
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                ringBuffer.close();
+            }
+        }, "audio-capture");
+
+        Thread analysisThread = new Thread(() -> {
+            double[] samples = new double[AudioConstants.HOP_SIZE];
+            Decimator decimator = new Decimator(decimation);
+            double[] decimated = new double[decimator.maxOutputLength(samples.length)];
+            // Après décimation, trames, pas et fenêtres raccourcissent d'autant pour garder durées et résolution
+            double sampleRate = source.getSampleRate() / decimation;
+            int frameSize = AudioConstants.SAMPLE_COUNT / decimation;
+            int hopSize = AudioConstants.HOP_SIZE / decimation;
+            GoertzelFilterBank noteBank = null;
+            ShortTimeFourierTransform stft = null;
+            if (notesMode) {
+                noteBank = new GoertzelFilterBank(sampleRate, hopSize,
+                        LiveFrequencyAnalyzerInterruptible::printActiveNotes);
+            } else {
+                PitchDetector pitchDetector = new PitchDetector(PITCH_WINDOW / decimation, sampleRate);
+                stft = new ShortTimeFourierTransform(frameSize, hopSize, WindowFunction.HANN,
+                        (frame, magnitudes) -> printDominantFrequency(frame, magnitudes, sampleRate, pitchDetector));
+            }
+            try {
+                int count;
+                while ((count = ringBuffer.read(samples, 0, samples.length, 100, TimeUnit.MILLISECONDS)) >= 0) {
+                    analysedSamples.addAndGet(count);
+                    count = decimator.process(samples, 0, count, decimated, 0);
+                    // La STFT comme le banc de filtres émettent un résultat tous les hopSize échantillons
+                    if (notesMode) noteBank.process(decimated, 0, count);
+                    else stft.process(decimated, 0, count);
                 }
-
-                double frequency = maxIndex * AudioConstants.SAMPLE_RATE / AudioConstants.SAMPLE_COUNT;
-                double magnitude = magnitudes[maxIndex];
-
-                // Affichage console : fréquence + barre d'intensité
-                System.out.printf("Fréquence dominante : %7.1f Hz %s%n",
-                        frequency,
-                        createBarGraph(magnitude));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-        });
+        }, "audio-analysis");
 
-        captureThread.start();
+        // Entrée arrête la capture ; une source finie s'arrête aussi d'elle-même à sa fin
+        Thread stopThread = new Thread(() -> {
+            // Sans entrée standard (redirigée depuis /dev/null), seule la fin de la source arrête l'analyse
+            if (new Scanner(System.in).hasNextLine()) running.set(false);
+        }, "stop-on-enter");
+        stopThread.setDaemon(true);
 
-        // Attente d'Entrée pour arrêter proprement
-        new Scanner(System.in).nextLine();
-        running.set(false);
+        captureThread.start();
+        analysisThread.start();
+        stopThread.start();
 
         captureThread.join();
-        microphone.stop();
-        microphone.close();
+        analysisThread.join();
+        source.close();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double duration = analysedSamples.get() / source.getSampleRate();
+
+        IO.println(String.format("✅ Capture arrêtée. %.1f s d'audio analysées en %.1f s (%.1fx temps réel), "
+                + "échantillons perdus par l'analyse: %d", duration, elapsed, duration / elapsed, ringBuffer.getDroppedSamples()));
+        if (recorder != null) {
+            recorder.close();
+            IO.println("💾 Fichier enregistré : " + outFile.getAbsolutePath() + " (" + recorder.getBytesWritten()
+                    + " octets, " + recorder.getDroppedBytes() + " octets perdus par l'enregistrement)");
+        }
+    }
 
-        IO.println("✅ Capture arrêtée. Octets enregistrés: " + recorded.size());
+    private static void printDominantFrequency(double[] frame, double[] magnitudes, double sampleRate, PitchDetector pitchDetector) {
+        // Trouver pic (éviter index 0 = DC), affiné entre deux bins
+        int maxIndex = SpectrumPeaks.dominantBin(magnitudes);
+        double peak = SpectrumPeaks.interpolatedBin(magnitudes, maxIndex);
 
-        // Optionnel : sauvegarder en WAV (décommenter si souhaité)
+        double frequency = peak * sampleRate / frame.length;
+        double magnitude = magnitudes[maxIndex];
 
-        byte[] audioData = recorded.toByteArray();
-        ByteArrayInputStream bais = new ByteArrayInputStream(audioData);
-        AudioInputStream ais = new AudioInputStream(bais, format, audioData.length / format.getFrameSize());
-        File outFile = new File("enregistrement.wav");
-        AudioSystem.write(ais, Type.WAVE, outFile);
-        IO.println("💾 Fichier enregistré : " + outFile.getAbsolutePath());
+        // Fondamentale mesurée sur les derniers échantillons de la trame, pour une latence minimale
+        double pitch = pitchDetector.detect(frame, frame.length - pitchDetector.getWindowSize());
+        String note = "      —          ";
+        if (!Double.isNaN(pitch)) {
+            int noteIndex = NoteTable.nearest(pitch);
+            note = String.format("%7.2f Hz %-3s %+6.1f¢", pitch, NoteTable.name(noteIndex), NoteTable.cents(pitch, noteIndex));
+        }
 
+        // Affichage console : fréquence + note + barre d'intensité
+        System.out.printf("Fréquence dominante : %7.1f Hz | Note : %s %s%n",
+                frequency,
+                note,
+                createBarGraph(magnitude));
     }
 
-    // FFT (Cooley–Tukey) — prend des échantillons réels, renvoie magnitudes[0..n/2-1]
-    private static double[] computeFFT(double[] input) {
-        int n = input.length;
-        double[] real = Arrays.copyOf(input, n);
-        double[] imag = new double[n];
-
-        int levels = 31 - Integer.numberOfLeadingZeros(n);
-        // bit-reversal permutation
-        for (int i = 0; i < n; i++) {
-            int j = Integer.reverse(i) >>> (32 - levels);
-            if (j > i) {
-                double tmpR = real[i];
-                real[i] = real[j];
-                real[j] = tmpR;
-                double tmpI = imag[i];
-                imag[i] = imag[j];
-                imag[j] = tmpI;
+    private static void printActiveNotes(double[] amplitudes) {
+        // Sélection des notes les plus fortes au-dessus du seuil, la plus forte en premier
+        int[] active = new int[MAX_ACTIVE_NOTES];
+        int count = 0;
+        for (int k = 0; k < amplitudes.length; k++) {
+            if (amplitudes[k] < NOTE_ACTIVITY_THRESHOLD) continue;
+            int i = Math.min(count, MAX_ACTIVE_NOTES - 1);
+            if (count == MAX_ACTIVE_NOTES && amplitudes[k] <= amplitudes[active[i]]) continue;
+            while (i > 0 && amplitudes[active[i - 1]] < amplitudes[k]) {
+                active[i] = active[i - 1];
+                i--;
             }
+            active[i] = k;
+            if (count < MAX_ACTIVE_NOTES) count++;
         }
 
-        for (int size = 2; size <= n; size <<= 1) {
-            int half = size >> 1;
-            double angle = -2 * Math.PI / size;
-            double wStepR = Math.cos(angle);
-            double wStepI = Math.sin(angle);
-
-            for (int i = 0; i < n; i += size) {
-                double wR = 1.0;
-                double wI = 0.0;
-                for (int j = 0; j < half; j++) {
-                    int even = i + j;
-                    int odd = i + j + half;
-
-                    double rEven = real[even];
-                    double iEven = imag[even];
-                    double rOdd = real[odd];
-                    double iOdd = imag[odd];
-
-                    double tR = rOdd * wR - iOdd * wI;
-                    double tI = rOdd * wI + iOdd * wR;
-
-                    real[even] = rEven + tR;
-                    imag[even] = iEven + tI;
-                    real[odd] = rEven - tR;
-                    imag[odd] = iEven - tI;
-
-                    double newWR = wR * wStepR - wI * wStepI;
-                    double newWI = wR * wStepI + wI * wStepR;
-                    wR = newWR;
-                    wI = newWI;
-                }
-            }
+        if (count == 0) {
+            System.out.println("Notes actives : —");
+            return;
         }
-
-        double[] mags = new double[n / 2];
-        for (int i = 0; i < n / 2; i++) {
-            mags[i] = Math.hypot(real[i], imag[i]);
+        StringBuilder line = new StringBuilder("Notes actives :");
+        for (int i = 0; i < count; i++) {
+            line.append(String.format(" %-4s", NoteTable.name(active[i])));
         }
-        return mags;
+        System.out.println(line.append(createBarGraph(amplitudes[active[0]])));
     }
 
     private static String createBarGraph(double magnitude) {
@@ -0,0 +1,70 @@
+package fr.eletutour.sound.analyser;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+import java.io.IOException;
+
+/**
+ * Capture le micro par défaut en PCM 16 bits mono little-endian.
+ */
+public final class MicrophoneSource implements CaptureSource {
+
+    private final TargetDataLine line;
+    private final float sampleRate;
+    private byte[] buffer = new byte[0];
+
+    /**
+     * Ouvre et démarre la ligne du micro.
+     * @param sampleRate La fréquence d'échantillonnage, en Hz.
+     * @param bufferBytes La taille du tampon de la ligne, en octets.
+     * @throws IOException Si aucun micro n'est disponible dans ce format.
+     */
+    public MicrophoneSource(float sampleRate, int bufferBytes) throws IOException {
+        this.sampleRate = sampleRate;
+        AudioFormat format = new AudioFormat(sampleRate, 16, 1, true, false); // little-endian
+        try {
+            DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
+            line = (TargetDataLine) AudioSystem.getLine(info);
+            line.open(format, bufferBytes);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            throw new IOException("Micro indisponible pour " + format, e);
+        }
+        line.start();
+    }
+
+    @Override
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return true;
+    }
+
+    @Override
+    public int read(double[] samples, int offset, int length) {
+        if (buffer.length < length * 2) buffer = new byte[length * 2];
+        int bytesRead = line.read(buffer, 0, length * 2);
+        if (bytesRead <= 0) return 0;
+
+        // Conversion bytes -> échantillons normalisés (-1.0 .. 1.0)
+        int samplesRead = bytesRead / 2;
+        for (int i = 0, s = 0; s < samplesRead; i += 2, s++) {
+            // little-endian -> low byte first
+            int low = buffer[i] & 0xFF;
+            int high = buffer[i + 1]; // sign will be preserved
+            samples[offset + s] = ((high << 8) | low) / 32768.0;
+        }
+        return samplesRead;
+    }
+
+    @Override
+    public void close() {
+        line.stop();
+        line.close();
+    }
+}
@@ -0,0 +1,85 @@
+package fr.eletutour.sound.analyser;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Table triée des notes de {@link AudioConstants#noteFrequencies}, sans doublons enharmoniques,
+ * permettant de retrouver la note la plus proche d'une fréquence et l'écart en cents.
+ */
+public final class NoteTable {
+
+    private static final String[] NAMES;
+    private static final double[] FREQUENCIES;
+
+    static {
+        // Une seule entrée par fréquence : on garde le nom en dièse plutôt qu'en bémol (A#4 plutôt que Bb4)
+        TreeMap<Double, String> byFrequency = new TreeMap<>();
+        for (Map.Entry<String, Double> entry : AudioConstants.noteFrequencies.entrySet()) {
+            byFrequency.merge(entry.getValue(), entry.getKey(),
+                    (current, candidate) -> isFlat(current) && !isFlat(candidate) ? candidate : current);
+        }
+        NAMES = byFrequency.values().toArray(new String[0]);
+        FREQUENCIES = byFrequency.keySet().stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private NoteTable() {}
+
+    private static boolean isFlat(String name) {
+        return name.length() > 1 && name.charAt(1) == 'b';
+    }
+
+    /**
+     * @return Le nombre de notes distinctes.
+     */
+    public static int size() {
+        return NAMES.length;
+    }
+
+    /**
+     * @param index L'indice de la note, de la plus grave à la plus aiguë.
+     * @return Le nom de la note (ex: "A4").
+     */
+    public static String name(int index) {
+        return NAMES[index];
+    }
+
+    /**
+     * @param index L'indice de la note, de la plus grave à la plus aiguë.
+     * @return La fréquence de la note en Hz.
+     */
+    public static double frequency(int index) {
+        return FREQUENCIES[index];
+    }
+
+    /**
+     * Cherche la note la plus proche en échelle logarithmique (c'est-à-dire en cents).
+     * @param frequency Une fréquence strictement positive, en Hz.
+     * @return L'indice de la note la plus proche.
+     */
+    public static int nearest(double frequency) {
+        int low = 0;
+        int high = FREQUENCIES.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (FREQUENCIES[middle] < frequency) low = middle + 1;
+            else high = middle;
+        }
+        // low est la première note >= frequency : on compare avec sa voisine inférieure
+        if (low > 0 && frequency / FREQUENCIES[low - 1] < FREQUENCIES[low] / frequency) {
+            return low - 1;
+        }
+        return low;
+    }
+
+    /**
+     * @param frequency La fréquence mesurée, en Hz.
+     * @param index L'indice de la note de référence.
+     * @return L'écart en cents entre la fréquence et la note (positif si plus aigu).
+     */
+    public static double cents(double frequency, int index) {
+        return 1200.0 * Math.log(frequency / FREQUENCIES[index]) / Math.log(2.0);
+    }
+}
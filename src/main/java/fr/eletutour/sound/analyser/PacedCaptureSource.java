@@ -0,0 +1,50 @@
+package fr.eletutour.sound.analyser;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Délivre les échantillons d'une source au rythme du temps réel : chaque lecture attend l'instant où le
+ * dernier échantillon lu aurait été capturé par un micro. L'horloge est calée sur la première lecture et
+ * calculée à partir du nombre total d'échantillons, de sorte que les retards ne s'accumulent pas.
+ */
+final class PacedCaptureSource implements CaptureSource {
+
+    private final CaptureSource source;
+    private long startTime = -1;
+    private long samplesRead = 0;
+
+    PacedCaptureSource(CaptureSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public double getSampleRate() {
+        return source.getSampleRate();
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return true;
+    }
+
+    @Override
+    public int read(double[] samples, int offset, int length) throws IOException {
+        if (startTime < 0) startTime = System.nanoTime();
+        int count = source.read(samples, offset, length);
+        if (count <= 0) return count;
+
+        samplesRead += count;
+        long due = startTime + (long) (samplesRead * 1e9 / source.getSampleRate());
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
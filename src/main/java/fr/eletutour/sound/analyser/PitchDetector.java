@@ -0,0 +1,153 @@
+package fr.eletutour.sound.analyser;
+
+import java.util.Arrays;
+
+/**
+ * Détecteur de fréquence fondamentale par la méthode de McLeod (MPM).
+ * <p>
+ * Contrairement au pic de FFT, limité à la résolution d'un bin et souvent attiré par une harmonique,
+ * la fonction de différence carrée normalisée (NSDF) mesure directement la période du signal :
+ * l'autocorrélation est calculée par FFT (zéro-padding à au moins deux fois la fenêtre), le premier
+ * maximum « clé » suffisamment proche du maximum global est retenu, puis affiné par interpolation
+ * parabolique. On obtient une précision bien inférieure au cent avec une fenêtre courte : 2048
+ * échantillons à 96 kHz représentent environ 21 ms.
+ * <p>
+ * Tous les tampons sont préalloués ; une instance n'est pas thread-safe.
+ */
+public final class PitchDetector {
+
+    // Proportion du maximum global de la NSDF qu'un maximum clé doit atteindre pour être retenu
+    private static final double PEAK_THRESHOLD = 0.93;
+    // En dessous de cette clarté, le signal est considéré comme non périodique
+    private static final double MIN_CLARITY = 0.6;
+
+    private final int windowSize;
+    private final double sampleRate;
+    private final int maxLag;
+    private final FftPlan fft;
+    private final double[] real;
+    private final double[] imag;
+    private final double[] nsdf;
+
+    private double clarity = 0.0;
+
+    /**
+     * @param windowSize Le nombre d'échantillons analysés par détection.
+     * @param sampleRate La fréquence d'échantillonnage du signal, en Hz.
+     */
+    public PitchDetector(int windowSize, double sampleRate) {
+        this.windowSize = windowSize;
+        this.sampleRate = sampleRate;
+        // Au-delà, la NSDF repose sur trop peu de produits pour être fiable
+        this.maxLag = windowSize * 2 / 3;
+        int fftSize = Integer.highestOneBit(2 * windowSize - 1) << 1;
+        this.fft = new FftPlan(fftSize);
+        this.real = new double[fftSize];
+        this.imag = new double[fftSize];
+        this.nsdf = new double[maxLag];
+    }
+
+    /**
+     * @return La taille de la fenêtre d'analyse.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return La fréquence la plus basse détectable, en Hz.
+     */
+    public double getMinFrequency() {
+        return sampleRate / (maxLag - 1);
+    }
+
+    /**
+     * @return La clarté de la dernière détection, entre 0 (bruit) et 1 (signal parfaitement périodique).
+     */
+    public double getClarity() {
+        return clarity;
+    }
+
+    /**
+     * Estime la fréquence fondamentale sur {@link #getWindowSize()} échantillons.
+     * @param samples Le tampon source.
+     * @param offset L'indice du premier échantillon de la fenêtre.
+     * @return La fréquence fondamentale en Hz, ou {@link Double#NaN} si aucune hauteur claire n'est trouvée.
+     */
+    public double detect(double[] samples, int offset) {
+        clarity = 0.0;
+
+        // Autocorrélation r(τ) = IFFT(|FFT(x)|²), le zéro-padding évitant le repliement circulaire
+        System.arraycopy(samples, offset, real, 0, windowSize);
+        Arrays.fill(real, windowSize, real.length, 0.0);
+        Arrays.fill(imag, 0.0);
+        fft.transform(real, imag);
+        for (int k = 0; k < real.length; k++) {
+            real[k] = real[k] * real[k] + imag[k] * imag[k];
+            imag[k] = 0.0;
+        }
+        // Le spectre de puissance étant réel et symétrique, une FFT directe tient lieu de FFT inverse
+        fft.transform(real, imag);
+
+        // NSDF : n(τ) = 2 r(τ) / m(τ), avec m(τ) = Σ x[j]² + x[j+τ]² mis à jour incrémentalement
+        double m = 0.0;
+        for (int i = 0; i < windowSize; i++) {
+            double x = samples[offset + i];
+            m += 2 * x * x;
+        }
+        if (m <= 0.0) return Double.NaN;
+
+        double scale = 1.0 / real.length;
+        for (int tau = 0; tau < maxLag; tau++) {
+            if (tau > 0) {
+                double head = samples[offset + tau - 1];
+                double tail = samples[offset + windowSize - tau];
+                m -= head * head + tail * tail;
+            }
+            nsdf[tau] = m > 0.0 ? 2.0 * real[tau] * scale / m : 0.0;
+        }
+
+        int bestLag = pickKeyMaximum();
+        if (bestLag <= 0) return Double.NaN;
+
+        double left = nsdf[bestLag - 1];
+        double center = nsdf[bestLag];
+        double right = nsdf[bestLag + 1];
+        double delta = SpectrumPeaks.parabolicOffset(left, center, right);
+        clarity = Math.min(1.0, center - 0.25 * (left - right) * delta);
+        if (clarity < MIN_CLARITY) return Double.NaN;
+
+        return sampleRate / (bestLag + delta);
+    }
+
+    /**
+     * Parcourt les lobes positifs de la NSDF (après son premier passage sous zéro) et retourne le maximum
+     * du premier lobe atteignant {@link #PEAK_THRESHOLD} fois le plus haut d'entre eux, ou -1.
+     * Le premier passage mesure le plus haut maximum clé, le second applique le seuil.
+     */
+    private int pickKeyMaximum() {
+        int start = 1;
+        while (start < maxLag && nsdf[start] > 0.0) start++;
+
+        double highest = 0.0;
+        for (int pass = 0; pass < 2; pass++) {
+            int lobeMax = -1;
+            for (int t = start; t < maxLag; t++) {
+                if (nsdf[t] > 0.0 && (lobeMax < 0 || nsdf[t] > nsdf[lobeMax])) {
+                    lobeMax = t;
+                }
+                boolean lobeEnd = nsdf[t] <= 0.0 || t == maxLag - 1;
+                if (lobeEnd && lobeMax >= 0) {
+                    // Un maximum au bord de la NSDF ne peut pas être interpolé
+                    if (lobeMax < maxLag - 1) {
+                        if (pass == 0) highest = Math.max(highest, nsdf[lobeMax]);
+                        else if (nsdf[lobeMax] >= PEAK_THRESHOLD * highest) return lobeMax;
+                    }
+                    lobeMax = -1;
+                }
+            }
+            if (highest <= 0.0) return -1;
+        }
+        return -1;
+    }
+}
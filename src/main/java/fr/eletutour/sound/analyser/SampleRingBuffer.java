@@ -0,0 +1,230 @@
+package fr.eletutour.sound.analyser;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tampon circulaire d'échantillons, sans verrou, entre un unique producteur (le thread de capture)
+ * et un unique consommateur (le thread d'analyse).
+ * <p>
+ * Le tableau est préalloué et les indices de lecture/écriture sont des compteurs 64 bits croissants.
+ * Lorsque le tampon est plein, la {@link OverflowPolicy} choisie s'applique : soit le producteur avance
+ * lui-même l'indice de lecture (les échantillons les plus anciens sont perdus et comptabilisés), soit il
+ * attend que le consommateur libère de la place. Le consommateur valide chaque lecture par un
+ * compare-and-set sur l'indice de lecture : si le producteur l'a devancé pendant la copie, la lecture
+ * est simplement recommencée, de sorte qu'aucune donnée écrasée n'est jamais renvoyée.
+ */
+public final class SampleRingBuffer {
+
+    /**
+     * Comportement du producteur lorsque le tampon est plein.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Écrase les échantillons les plus anciens et incrémente le compteur d'échantillons perdus.
+         * Le producteur ne bloque jamais : adapté à une capture temps réel.
+         */
+        DROP_OLDEST,
+        /**
+         * Attend que le consommateur ait libéré de la place. Aucun échantillon n'est perdu.
+         */
+        BLOCK
+    }
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final double[] buffer;
+    private final int capacity;
+    private final int mask;
+    private final OverflowPolicy policy;
+
+    private final AtomicLong writeIndex = new AtomicLong();
+    private final AtomicLong readIndex = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    private volatile Thread waitingConsumer;
+    private volatile Thread waitingProducer;
+    private volatile boolean closed = false;
+
+    /**
+     * @param minCapacity La capacité minimale en échantillons, arrondie à la puissance de 2 supérieure.
+     * @param policy Le comportement lorsque le tampon est plein.
+     */
+    public SampleRingBuffer(int minCapacity, OverflowPolicy policy) {
+        if (minCapacity <= 0 || minCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacité invalide : " + minCapacity);
+        }
+        this.capacity = minCapacity == 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.buffer = new double[capacity];
+        this.policy = policy;
+    }
+
+    /**
+     * @return La capacité effective du tampon, en échantillons.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Le nombre d'échantillons écrasés avant d'avoir été lus (politique DROP_OLDEST).
+     */
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+
+    /**
+     * @return Le nombre d'échantillons disponibles à la lecture.
+     */
+    public int available() {
+        return (int) Math.min(capacity, writeIndex.get() - readIndex.get());
+    }
+
+    /**
+     * Écrit des échantillons dans le tampon. À appeler uniquement depuis le thread producteur.
+     * @param src Le tampon source.
+     * @param offset L'indice du premier échantillon à écrire.
+     * @param length Le nombre d'échantillons à écrire.
+     * @return Le nombre d'échantillons écrits, inférieur à {@code length} uniquement si le tampon a été fermé
+     *         pendant une attente (politique BLOCK).
+     */
+    public int write(double[] src, int offset, int length) {
+        if (policy == OverflowPolicy.DROP_OLDEST) {
+            if (length > capacity) {
+                // Seuls les derniers échantillons peuvent tenir dans le tampon
+                int skipped = length - capacity;
+                droppedSamples.addAndGet(skipped);
+                publish(src, offset + skipped, capacity, true);
+                return length;
+            }
+            publish(src, offset, length, true);
+            return length;
+        }
+
+        int written = 0;
+        while (written < length) {
+            int count = Math.min(length - written, capacity);
+            if (!awaitSpace(count)) {
+                return written;
+            }
+            publish(src, offset + written, count, false);
+            written += count;
+        }
+        return written;
+    }
+
+    /**
+     * Lit les échantillons disponibles sans bloquer. À appeler uniquement depuis le thread consommateur.
+     * @param dst Le tampon de destination.
+     * @param offset L'indice où écrire le premier échantillon.
+     * @param length Le nombre maximal d'échantillons à lire.
+     * @return Le nombre d'échantillons lus, éventuellement 0.
+     */
+    public int read(double[] dst, int offset, int length) {
+        while (true) {
+            long r = readIndex.get();
+            long w = writeIndex.get();
+            int count = (int) Math.min(length, w - r);
+            if (count <= 0) return 0;
+
+            int start = (int) (r & mask);
+            int first = Math.min(count, capacity - start);
+            System.arraycopy(buffer, start, dst, offset, first);
+            System.arraycopy(buffer, 0, dst, offset + first, count - first);
+
+            // Échec = le producteur a écrasé la zone pendant la copie : on recommence depuis le nouvel indice
+            if (readIndex.compareAndSet(r, r + count)) {
+                Thread producer = waitingProducer;
+                if (producer != null) LockSupport.unpark(producer);
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Lit les échantillons disponibles en attendant qu'au moins un soit présent.
+     * @param dst Le tampon de destination.
+     * @param offset L'indice où écrire le premier échantillon.
+     * @param length Le nombre maximal d'échantillons à lire.
+     * @param timeout Le délai d'attente maximal.
+     * @param unit L'unité du délai.
+     * @return Le nombre d'échantillons lus, 0 si le délai a expiré, -1 si le tampon est fermé et vide.
+     * @throws InterruptedException Si le thread consommateur est interrompu pendant l'attente.
+     */
+    public int read(double[] dst, int offset, int length, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            int count = read(dst, offset, length);
+            if (count > 0) return count;
+            if (closed) return writeIndex.get() > readIndex.get() ? read(dst, offset, length) : -1;
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return 0;
+
+            waitingConsumer = Thread.currentThread();
+            if (writeIndex.get() == readIndex.get() && !closed) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            waitingConsumer = null;
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Ferme le tampon : le producteur cesse d'attendre et le consommateur reçoit -1 une fois le tampon vidé.
+     */
+    public void close() {
+        closed = true;
+        Thread consumer = waitingConsumer;
+        if (consumer != null) LockSupport.unpark(consumer);
+        Thread producer = waitingProducer;
+        if (producer != null) LockSupport.unpark(producer);
+    }
+
+    /**
+     * @return true si {@link #close()} a été appelé.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private boolean awaitSpace(int count) {
+        while (writeIndex.get() + count - readIndex.get() > capacity) {
+            if (closed) return false;
+            waitingProducer = Thread.currentThread();
+            if (writeIndex.get() + count - readIndex.get() > capacity && !closed) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            waitingProducer = null;
+        }
+        return true;
+    }
+
+    private void publish(double[] src, int offset, int length, boolean dropOldest) {
+        long w = writeIndex.get();
+
+        if (dropOldest) {
+            // Le producteur libère lui-même la place en avançant l'indice de lecture
+            while (true) {
+                long r = readIndex.get();
+                long overflow = w + length - capacity - r;
+                if (overflow <= 0) break;
+                if (readIndex.compareAndSet(r, r + overflow)) {
+                    droppedSamples.addAndGet(overflow);
+                    break;
+                }
+            }
+        }
+
+        int start = (int) (w & mask);
+        int first = Math.min(length, capacity - start);
+        System.arraycopy(src, offset, buffer, start, first);
+        System.arraycopy(src, offset + first, buffer, 0, length - first);
+        writeIndex.set(w + length);
+
+        Thread consumer = waitingConsumer;
+        if (consumer != null) LockSupport.unpark(consumer);
+    }
+}
@@ -0,0 +1,124 @@
+package fr.eletutour.sound.analyser;
+
+import java.util.Arrays;
+
+/**
+ * Étage de transformée de Fourier à court terme (STFT) incrémental.
+ * <p>
+ * Il reçoit des blocs d'échantillons de taille quelconque, conserve l'historique des {@code frameSize}
+ * derniers échantillons et émet une trame tous les {@code hopSize} échantillons : la trame est fenêtrée
+ * avec une table précalculée puis transformée par un {@link FftPlan}. Tous les tampons sont alloués
+ * une fois pour toutes ; l'instance n'est pas thread-safe et doit être alimentée par un seul thread.
+ */
+public final class ShortTimeFourierTransform {
+
+    /**
+     * Reçoit chaque trame produite par la STFT.
+     */
+    @FunctionalInterface
+    public interface FrameListener {
+
+        /**
+         * Appelé sur le thread qui alimente la STFT. Les tableaux sont réutilisés à la trame suivante :
+         * il faut les copier pour les conserver.
+         * @param frame Les {@code frameSize} derniers échantillons, dans l'ordre chronologique, non fenêtrés.
+         * @param magnitudes Le spectre d'amplitude de la trame fenêtrée, magnitudes[0..frameSize/2-1].
+         */
+        void onFrame(double[] frame, double[] magnitudes);
+    }
+
+    private final int frameSize;
+    private final int hopSize;
+    private final FrameListener listener;
+    private final FftPlan fft;
+    private final double[] window;
+
+    // Historique circulaire des derniers échantillons
+    private final double[] history;
+    private int writePosition = 0;
+    private int samplesUntilNextFrame;
+
+    private final double[] frame;
+    private final double[] windowedFrame;
+    private final double[] magnitudes;
+
+    /**
+     * @param frameSize La taille des trames, puissance de 2.
+     * @param hopSize Le nombre d'échantillons entre deux trames (ex: frameSize / 4 pour 75% de recouvrement).
+     * @param windowFunction La fenêtre appliquée à chaque trame.
+     * @param listener Le destinataire des trames.
+     */
+    public ShortTimeFourierTransform(int frameSize, int hopSize, WindowFunction windowFunction, FrameListener listener) {
+        if (hopSize <= 0 || hopSize > frameSize) {
+            throw new IllegalArgumentException("Le pas doit être compris entre 1 et la taille de trame : " + hopSize);
+        }
+        this.frameSize = frameSize;
+        this.hopSize = hopSize;
+        this.listener = listener;
+        this.fft = new FftPlan(frameSize);
+        this.window = windowFunction.coefficients(frameSize);
+        this.history = new double[frameSize];
+        this.frame = new double[frameSize];
+        this.windowedFrame = new double[frameSize];
+        this.magnitudes = new double[frameSize / 2];
+        this.samplesUntilNextFrame = hopSize;
+    }
+
+    /**
+     * @return La taille des trames émises.
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * @return Le nombre d'échantillons entre deux trames.
+     */
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    /**
+     * Ajoute des échantillons à l'historique et émet autant de trames que de pas franchis.
+     * @param samples Le tampon source.
+     * @param offset L'indice du premier échantillon à consommer.
+     * @param length Le nombre d'échantillons à consommer.
+     */
+    public void process(double[] samples, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            int count = Math.min(end - offset, Math.min(samplesUntilNextFrame, frameSize - writePosition));
+            System.arraycopy(samples, offset, history, writePosition, count);
+            offset += count;
+            writePosition = (writePosition + count) % frameSize;
+            samplesUntilNextFrame -= count;
+
+            if (samplesUntilNextFrame == 0) {
+                emitFrame();
+                samplesUntilNextFrame = hopSize;
+            }
+        }
+    }
+
+    /**
+     * Vide l'historique, par exemple après une interruption du flux.
+     */
+    public void reset() {
+        Arrays.fill(history, 0.0);
+        writePosition = 0;
+        samplesUntilNextFrame = hopSize;
+    }
+
+    private void emitFrame() {
+        // Remise dans l'ordre chronologique : la plus ancienne valeur est à writePosition
+        int tail = frameSize - writePosition;
+        System.arraycopy(history, writePosition, frame, 0, tail);
+        System.arraycopy(history, 0, frame, tail, writePosition);
+
+        for (int i = 0; i < frameSize; i++) {
+            windowedFrame[i] = frame[i] * window[i];
+        }
+        fft.magnitudes(windowedFrame, magnitudes);
+        listener.onFrame(frame, magnitudes);
+    }
+}
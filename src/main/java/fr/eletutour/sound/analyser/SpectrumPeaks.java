@@ -0,0 +1,53 @@
+package fr.eletutour.sound.analyser;
+
+/**
+ * Recherche de pics dans un spectre d'amplitude.
+ */
+public final class SpectrumPeaks {
+
+    private SpectrumPeaks() {}
+
+    /**
+     * Cherche le bin d'amplitude maximale en ignorant le bin 0 (composante continue).
+     * @param magnitudes Le spectre, d'au moins 2 bins.
+     * @return L'indice du pic.
+     */
+    public static int dominantBin(double[] magnitudes) {
+        int maxIndex = 1;
+        for (int i = 2; i < magnitudes.length; i++) {
+            if (magnitudes[i] > magnitudes[maxIndex]) maxIndex = i;
+        }
+        return maxIndex;
+    }
+
+    /**
+     * Position fractionnaire du sommet de la parabole passant par trois points équidistants.
+     * @param left La valeur avant le maximum.
+     * @param center La valeur du maximum.
+     * @param right La valeur après le maximum.
+     * @return Le décalage du sommet par rapport au point central, entre -0.5 et 0.5.
+     */
+    public static double parabolicOffset(double left, double center, double right) {
+        double denominator = left - 2 * center + right;
+        if (denominator == 0.0) return 0.0;
+        return Math.max(-0.5, Math.min(0.5, 0.5 * (left - right) / denominator));
+    }
+
+    /**
+     * Affine la position d'un pic spectral par interpolation parabolique du logarithme des magnitudes,
+     * exacte pour un lobe gaussien et très proche pour les fenêtres de Hann ou Blackman-Harris.
+     * @param magnitudes Le spectre.
+     * @param bin L'indice du pic, par exemple renvoyé par {@link #dominantBin(double[])}.
+     * @return La position fractionnaire du pic, en bins.
+     */
+    public static double interpolatedBin(double[] magnitudes, int bin) {
+        if (bin <= 0 || bin >= magnitudes.length - 1) return bin;
+        double left = magnitudes[bin - 1];
+        double center = magnitudes[bin];
+        double right = magnitudes[bin + 1];
+        if (left <= 0.0 || center <= 0.0 || right <= 0.0) {
+            return bin + parabolicOffset(left, center, right);
+        }
+        return bin + parabolicOffset(Math.log(left), Math.log(center), Math.log(right));
+    }
+}
@@ -0,0 +1,113 @@
+package fr.eletutour.sound.analyser;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+import java.util.Random;
+
+/**
+ * Génère un signal de test de durée fixe, identique d'une exécution à l'autre : de quoi exercer la chaîne
+ * d'analyse sans micro et comparer des mesures de performance entre deux versions.
+ */
+public final class SyntheticSource implements CaptureSource {
+
+    /**
+     * Les signaux disponibles.
+     */
+    public enum Signal {
+        /** Balayage sinusoïdal exponentiel de 20 Hz à 20 kHz en 10 s, répété. */
+        SWEEP,
+        /** Bruit blanc uniforme. */
+        NOISE,
+        /** Les notes de {@link AudioConstants#noteFrequencies}, de la plus grave à la plus aiguë, 250 ms chacune. */
+        NOTES
+    }
+
+    public static final double DEFAULT_DURATION = 30.0;
+    public static final long DEFAULT_SEED = 42;
+
+    private static final double AMPLITUDE = 0.5;
+    private static final double SWEEP_START = 20.0;
+    private static final double SWEEP_END = 20000.0;
+    private static final double SWEEP_SECONDS = 10.0;
+    private static final double NOTE_SECONDS = 0.25;
+
+    private final Signal signal;
+    private final double sampleRate;
+    private final long totalSamples;
+    private final Random random;
+    private final double[] notes;
+    private final long sweepSamples;
+    private final long noteSamples;
+    private final double sweepRatio;
+
+    private long position = 0;
+    private double phase = 0.0;
+    private double frequency;
+
+    /**
+     * @param signal Le signal à générer.
+     * @param sampleRate La fréquence d'échantillonnage, en Hz.
+     * @param seconds La durée du signal, en secondes.
+     * @param seed La graine du bruit.
+     */
+    public SyntheticSource(Signal signal, double sampleRate, double seconds, long seed) {
+        this.signal = signal;
+        this.sampleRate = sampleRate;
+        this.totalSamples = (long) (seconds * sampleRate);
+        this.random = new Random(seed);
+        // Notes jouables à cette fréquence d'échantillonnage, sans doublons enharmoniques
+        this.notes = AudioConstants.noteFrequencies.values().stream()
+                .mapToDouble(Double::doubleValue)
+                .filter(f -> f < sampleRate / 2)
+                .distinct()
+                .sorted()
+                .toArray();
+        this.sweepSamples = (long) (SWEEP_SECONDS * sampleRate);
+        this.noteSamples = (long) (NOTE_SECONDS * sampleRate);
+        double sweepEnd = Math.min(SWEEP_END, 0.45 * sampleRate);
+        // Fréquence multipliée par ce rapport à chaque échantillon : balayage exponentiel
+        this.sweepRatio = Math.pow(sweepEnd / SWEEP_START, 1.0 / sweepSamples);
+    }
+
+    @Override
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return false;
+    }
+
+    @Override
+    public int read(double[] samples, int offset, int length) {
+        if (position >= totalSamples) return -1;
+        int count = (int) Math.min(length, totalSamples - position);
+        for (int i = 0; i < count; i++, position++) {
+            samples[offset + i] = switch (signal) {
+                case NOISE -> AMPLITUDE * (2.0 * random.nextDouble() - 1.0);
+                case SWEEP -> {
+                    frequency = position % sweepSamples == 0 ? SWEEP_START : frequency * sweepRatio;
+                    yield nextSine();
+                }
+                case NOTES -> {
+                    if (position % noteSamples == 0) frequency = notes[(int) (position / noteSamples % notes.length)];
+                    yield nextSine();
+                }
+            };
+        }
+        return count;
+    }
+
+    private double nextSine() {
+        // La phase continue d'une fréquence à l'autre : aucun clic aux changements de note
+        double sample = AMPLITUDE * Math.sin(phase);
+        phase += 2 * Math.PI * frequency / sampleRate;
+        if (phase >= 2 * Math.PI) phase -= 2 * Math.PI;
+        return sample;
+    }
+
+    @Override
+    public void close() {
+    }
+}
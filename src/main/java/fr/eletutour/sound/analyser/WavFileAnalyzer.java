@@ -0,0 +1,298 @@
+package fr.eletutour.sound.analyser;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.io.WavHeader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Analyse spectrale hors ligne de fichiers WAV (par exemple l'{@code enregistrement.wav} produit par
+ * {@link LiveFrequencyAnalyzerInterruptible}).
+ * <p>
+ * Le fichier est découpé en trames recouvrantes réparties sur un pool fork-join : chaque tâche feuille
+ * projette en mémoire ({@link FileChannel#map}) uniquement la portion du fichier couvrant ses trames,
+ * la décode une fois puis calcule FFT et fréquence dominante de chaque trame avec un espace de travail
+ * propre à son thread. Le traitement passe ainsi à l'échelle sur tous les cœurs, sans charger le fichier
+ * en mémoire.
+ */
+public class WavFileAnalyzer {
+
+    /**
+     * Reçoit le résultat de chaque trame.
+     */
+    @FunctionalInterface
+    public interface FrameConsumer {
+
+        /**
+         * Appelé en parallèle depuis les threads du pool, dans un ordre quelconque.
+         * Le tableau des magnitudes est réutilisé par le thread appelant : il faut le copier pour le conserver.
+         * @param frameIndex L'indice de la trame.
+         * @param timeSeconds L'instant du centre de la trame, en secondes.
+         * @param dominantFrequency La fréquence du pic principal, en Hz.
+         * @param magnitudes Le spectre d'amplitude de la trame fenêtrée.
+         */
+        void onFrame(long frameIndex, double timeSeconds, double dominantFrequency, double[] magnitudes);
+    }
+
+    // Nombre de trames traitées par une tâche feuille (et par projection mémoire)
+    private static final int FRAMES_PER_TASK = 256;
+
+    private final int frameSize;
+    private final int hopSize;
+    private final double[] window;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Workspace> workspaces;
+
+    /**
+     * @param frameSize La taille des trames, puissance de 2.
+     * @param hopSize Le nombre d'échantillons entre deux trames.
+     * @param windowFunction La fenêtre appliquée à chaque trame.
+     * @param pool Le pool sur lequel répartir l'analyse.
+     */
+    public WavFileAnalyzer(int frameSize, int hopSize, WindowFunction windowFunction, ForkJoinPool pool) {
+        if (hopSize <= 0 || hopSize > frameSize) {
+            throw new IllegalArgumentException("Le pas doit être compris entre 1 et la taille de trame : " + hopSize);
+        }
+        this.frameSize = frameSize;
+        this.hopSize = hopSize;
+        this.window = windowFunction.coefficients(frameSize);
+        this.pool = pool;
+        this.workspaces = ThreadLocal.withInitial(Workspace::new);
+    }
+
+    /**
+     * @param totalSamples Le nombre d'échantillons (par canal) du fichier.
+     * @return Le nombre de trames produites pour ce fichier.
+     */
+    public long frameCount(long totalSamples) {
+        if (totalSamples <= frameSize) return 1;
+        return 1 + (totalSamples - frameSize + hopSize - 1) / hopSize;
+    }
+
+    /**
+     * Analyse un fichier WAV et bloque jusqu'à ce que toutes les trames aient été transmises au consommateur.
+     * @param file Le fichier à analyser (PCM entier 8/16/24/32 bits ou flottant 32 bits, canaux mixés en mono).
+     * @param consumer Le destinataire des trames, appelé de façon concurrente.
+     * @return Le nombre de trames analysées.
+     * @throws IOException Si le fichier est illisible ou dans un format non supporté.
+     */
+    public long analyse(Path file, FrameConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WavHeader header = WavHeader.read(channel);
+            checkSupported(header);
+
+            long frames = frameCount(header.frameCount());
+            try {
+                pool.invoke(new FrameRange(channel, header, consumer, 0, frames));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return frames;
+        }
+    }
+
+    static void checkSupported(WavHeader header) throws IOException {
+        boolean pcm = header.formatTag() == WavHeader.FORMAT_PCM
+                && (header.bitsPerSample() == 8 || header.bitsPerSample() == 16
+                || header.bitsPerSample() == 24 || header.bitsPerSample() == 32);
+        boolean floating = header.formatTag() == WavHeader.FORMAT_IEEE_FLOAT && header.bitsPerSample() == 32;
+        if (!pcm && !floating) {
+            throw new IOException("Format WAV non supporté : format " + header.formatTag() + ", " + header.bitsPerSample() + " bits");
+        }
+    }
+
+    /**
+     * Tampons d'un thread du pool, réutilisés d'une tâche à l'autre.
+     */
+    private final class Workspace {
+        final FftPlan fft = new FftPlan(frameSize);
+        final double[] samples = new double[(FRAMES_PER_TASK - 1) * hopSize + frameSize];
+        final double[] frame = new double[frameSize];
+        final double[] magnitudes = new double[frameSize / 2];
+    }
+
+    private final class FrameRange extends RecursiveAction {
+        private final FileChannel channel;
+        private final WavHeader header;
+        private final FrameConsumer consumer;
+        private final long from;
+        private final long to;
+
+        FrameRange(FileChannel channel, WavHeader header, FrameConsumer consumer, long from, long to) {
+            this.channel = channel;
+            this.header = header;
+            this.consumer = consumer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FRAMES_PER_TASK) {
+                long middle = from + (to - from) / 2;
+                invokeAll(new FrameRange(channel, header, consumer, from, middle),
+                        new FrameRange(channel, header, consumer, middle, to));
+                return;
+            }
+            try {
+                analyseFrames();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void analyseFrames() throws IOException {
+            Workspace workspace = workspaces.get();
+            long totalSamples = header.frameCount();
+            long firstSample = from * hopSize;
+            long endSample = Math.min(totalSamples, (to - 1) * hopSize + frameSize);
+            int sampleCount = (int) Math.max(0, endSample - firstSample);
+
+            // Projection de la seule portion du fichier couverte par ces trames, décodée une seule fois
+            int blockAlign = header.blockAlign();
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY,
+                    header.dataOffset() + firstSample * blockAlign, (long) sampleCount * blockAlign);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            decode(data, header, workspace.samples, 0, sampleCount);
+
+            double sampleRate = header.sampleRate();
+            for (long f = from; f < to; f++) {
+                int base = (int) ((f - from) * hopSize);
+                for (int i = 0; i < frameSize; i++) {
+                    int index = base + i;
+                    workspace.frame[i] = index < sampleCount ? workspace.samples[index] * window[i] : 0.0;
+                }
+                workspace.fft.magnitudes(workspace.frame, workspace.magnitudes);
+
+                int peak = SpectrumPeaks.dominantBin(workspace.magnitudes);
+                double frequency = SpectrumPeaks.interpolatedBin(workspace.magnitudes, peak) * sampleRate / frameSize;
+                double time = (f * hopSize + frameSize / 2.0) / sampleRate;
+                consumer.onFrame(f, time, frequency, workspace.magnitudes);
+            }
+        }
+    }
+
+    /**
+     * Décode des trames PCM entrelacées, depuis le début du tampon, en échantillons mono normalisés (-1.0 .. 1.0).
+     */
+    static void decode(ByteBuffer data, WavHeader header, double[] out, int offset, int count) {
+        int channels = header.channels();
+        int bytesPerSample = header.bitsPerSample() / 8;
+        boolean floating = header.formatTag() == WavHeader.FORMAT_IEEE_FLOAT;
+        double gain = 1.0 / channels;
+
+        int position = 0;
+        for (int s = 0; s < count; s++) {
+            double sum = 0;
+            for (int c = 0; c < channels; c++, position += bytesPerSample) {
+                sum += floating ? data.getFloat(position) : switch (bytesPerSample) {
+                    case 1 -> ((data.get(position) & 0xFF) - 128) / 128.0;
+                    case 2 -> data.getShort(position) / 32768.0;
+                    case 3 -> ((data.get(position + 2) << 16) | ((data.get(position + 1) & 0xFF) << 8)
+                            | (data.get(position) & 0xFF)) / 8388608.0;
+                    default -> data.getInt(position) / 2147483648.0;
+                };
+            }
+            out[offset + s] = sum * gain;
+        }
+    }
+
+    /**
+     * Point d'entrée du mode batch.
+     * @param args Les fichiers WAV à analyser (par défaut {@code enregistrement.wav}). L'option {@code --spectra}
+     *             écrit aussi les spectres bruts (float32 little-endian, une trame après l'autre).
+     */
+    static void main(String[] args) throws Exception {
+        boolean writeSpectra = false;
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--spectra")) writeSpectra = true;
+            else files.add(Path.of(arg));
+        }
+        if (files.isEmpty()) files.add(Path.of("enregistrement.wav"));
+
+        WavFileAnalyzer analyzer = new WavFileAnalyzer(AudioConstants.SAMPLE_COUNT, AudioConstants.HOP_SIZE,
+                WindowFunction.HANN, ForkJoinPool.commonPool());
+
+        for (Path file : files) {
+            analyzer.analyseToFiles(file, writeSpectra);
+        }
+    }
+
+    private void analyseToFiles(Path file, boolean writeSpectra) throws IOException {
+        WavHeader header;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            header = WavHeader.read(channel);
+        }
+        long frames = frameCount(header.frameCount());
+        if (frames > Integer.MAX_VALUE) throw new IOException("Fichier trop long : " + file);
+
+        String baseName = file.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+        Path csvFile = file.resolveSibling(baseName + ".frequencies.csv");
+        Path spectraFile = file.resolveSibling(baseName + ".spectra.f32");
+
+        double[] frequencies = new double[(int) frames];
+        double[] times = new double[(int) frames];
+        int bins = frameSize / 2;
+        long start = System.nanoTime();
+
+        try (FileChannel spectra = writeSpectra
+                ? FileChannel.open(spectraFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                : null) {
+            ThreadLocal<ByteBuffer> spectrumBuffers = ThreadLocal.withInitial(
+                    () -> ByteBuffer.allocate(bins * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN));
+
+            analyse(file, (frameIndex, timeSeconds, dominantFrequency, magnitudes) -> {
+                frequencies[(int) frameIndex] = dominantFrequency;
+                times[(int) frameIndex] = timeSeconds;
+                if (spectra == null) return;
+
+                // Écriture positionnelle : chaque trame a sa place fixe dans le fichier, sans synchronisation
+                ByteBuffer buffer = spectrumBuffers.get().clear();
+                for (int i = 0; i < bins; i++) buffer.putFloat((float) magnitudes[i]);
+                buffer.flip();
+                long position = frameIndex * bins * Float.BYTES;
+                try {
+                    while (buffer.hasRemaining()) {
+                        position += spectra.write(buffer, position);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double duration = (double) header.frameCount() / header.sampleRate();
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile)) {
+            writer.write("frame;time_s;frequency_hz");
+            writer.newLine();
+            for (int f = 0; f < frames; f++) {
+                writer.write(String.format(Locale.ROOT, "%d;%.4f;%.2f", f, times[f], frequencies[f]));
+                writer.newLine();
+            }
+        }
+
+        System.out.printf("📊 %s : %d trames, %.1f s d'audio analysées en %.2f s (x%.0f temps réel)%n",
+                file.getFileName(), frames, duration, elapsed, duration / elapsed);
+        IO.println("💾 Fréquences : " + csvFile.toAbsolutePath());
+        if (writeSpectra) {
+            IO.println("💾 Spectres (" + bins + " bins/trame) : " + spectraFile.toAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package fr.eletutour.sound.analyser;
+
+import fr.eletutour.sound.io.WavHeader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lit un fichier WAV en flux, morceau par morceau, sans le charger en mémoire. Les formats sont ceux du
+ * {@link WavFileAnalyzer} : PCM entier 8/16/24/32 bits ou flottant 32 bits, canaux mixés en mono.
+ */
+public final class WavFileSource implements CaptureSource {
+
+    // Nombre maximal de trames décodées par lecture
+    private static final int CHUNK_FRAMES = 4096;
+
+    private final FileChannel channel;
+    private final WavHeader header;
+    private final ByteBuffer chunk;
+    private long position;
+    private final long end;
+
+    /**
+     * @param file Le fichier à lire.
+     * @throws IOException Si le fichier est illisible ou dans un format non supporté.
+     */
+    public WavFileSource(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.header = WavHeader.read(channel);
+            WavFileAnalyzer.checkSupported(header);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.chunk = ByteBuffer.allocateDirect(CHUNK_FRAMES * header.blockAlign()).order(ByteOrder.LITTLE_ENDIAN);
+        this.position = header.dataOffset();
+        this.end = header.dataOffset() + header.dataLength();
+    }
+
+    @Override
+    public double getSampleRate() {
+        return header.sampleRate();
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return false;
+    }
+
+    @Override
+    public int read(double[] samples, int offset, int length) throws IOException {
+        if (position >= end) return -1;
+        int blockAlign = header.blockAlign();
+        int frames = (int) Math.min(Math.min(length, CHUNK_FRAMES), (end - position) / blockAlign);
+
+        chunk.clear().limit(frames * blockAlign);
+        while (chunk.hasRemaining()) {
+            if (channel.read(chunk, position + chunk.position()) < 0) throw new IOException("Fin de fichier WAV inattendue");
+        }
+        position += (long) frames * blockAlign;
+        WavFileAnalyzer.decode(chunk.flip(), header, samples, offset, frames);
+        return frames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,73 @@
+package fr.eletutour.sound.analyser;
+
+/**
+ * Fonctions de fenêtrage appliquées à chaque trame avant la FFT pour limiter les fuites spectrales.
+ */
+public enum WindowFunction {
+
+    /**
+     * Aucune pondération : résolution maximale mais fuites importantes.
+     */
+    RECTANGULAR {
+        @Override
+        double coefficient(int i, int size) {
+            return 1.0;
+        }
+    },
+
+    /**
+     * Fenêtre de Hann : bon compromis entre largeur du lobe principal et atténuation des lobes secondaires.
+     */
+    HANN {
+        @Override
+        double coefficient(int i, int size) {
+            return 0.5 - 0.5 * Math.cos(2 * Math.PI * i / size);
+        }
+    },
+
+    /**
+     * Fenêtre de Blackman-Harris à 4 termes : lobes secondaires à -92 dB, lobe principal plus large.
+     */
+    BLACKMAN_HARRIS {
+        @Override
+        double coefficient(int i, int size) {
+            double x = 2 * Math.PI * i / size;
+            return 0.35875
+                    - 0.48829 * Math.cos(x)
+                    + 0.14128 * Math.cos(2 * x)
+                    - 0.01168 * Math.cos(3 * x);
+        }
+    };
+
+    /**
+     * Valeur de la fenêtre (forme périodique, adaptée à l'analyse par FFT).
+     */
+    abstract double coefficient(int i, int size);
+
+    /**
+     * Calcule la table des coefficients de la fenêtre, à mettre en cache par l'appelant.
+     * @param size La taille de la trame.
+     * @return Un nouveau tableau de {@code size} coefficients.
+     */
+    public double[] coefficients(int size) {
+        double[] table = new double[size];
+        for (int i = 0; i < size; i++) {
+            table[i] = coefficient(i, size);
+        }
+        return table;
+    }
+
+    /**
+     * Convertit une chaîne de caractères en fonction de fenêtrage.
+     * @param s La chaîne (ex: "hann", "blackman_harris"). Insensible à la casse.
+     * @return La WindowFunction correspondante, ou HANN par défaut.
+     */
+    public static WindowFunction fromString(String s) {
+        if (s == null) return HANN;
+        try {
+            return valueOf(s.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return HANN;
+        }
+    }
+}
@@ -22,8 +22,14 @@ public final class AudioConstants {
 
     /**
      * The number of samples to process in each FFT window. Must be a power of 2.
+     * At 96 kHz, 8192 samples give a bin resolution of about 11.7 Hz.
      */
-    public static final int SAMPLE_COUNT = 1024;
+    public static final int SAMPLE_COUNT = 8192;
+
+    /**
+     * The number of samples between two consecutive analysis frames (75% overlap).
+     */
+    public static final int HOP_SIZE = SAMPLE_COUNT / 4;
 
     /**
      * The number of bytes per audio sample. For 16-bit audio, this is 2 bytes.
@@ -0,0 +1,145 @@
+package fr.eletutour.sound.generation;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.drum.DrumAudioProcessor;
+import fr.eletutour.sound.generation.drum.DrumSound;
+import fr.eletutour.sound.generation.engine.AudioSink;
+import fr.eletutour.sound.generation.engine.AudioSource;
+import fr.eletutour.sound.generation.engine.NoteEvent;
+import fr.eletutour.sound.generation.engine.NoteEventQueue;
+import fr.eletutour.sound.generation.engine.NullSink;
+import fr.eletutour.sound.generation.engine.OfflineRenderer;
+import fr.eletutour.sound.generation.engine.ParameterBus;
+import fr.eletutour.sound.generation.engine.SmoothedParameter;
+import fr.eletutour.sound.generation.engine.WavFileSink;
+import fr.eletutour.sound.generation.guitar.GuitarAudioProcessor;
+import fr.eletutour.sound.generation.synthe.SynthAudioProcessor;
+import fr.eletutour.sound.generation.synthe.SynthParameters;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Plays a scripted groove on every instrument without a window nor a sound device, and reports how fast each one
+ * renders as a multiple of real time.
+ * <p>
+ * Each instrument is first rendered alone into a {@link NullSink}, then the synthesiser, drum kit and guitar
+ * together into the chosen output. The test tone of the {@link SoundGenerator} is measured alone only: at full
+ * scale it would clip the ensemble.
+ * <p>
+ * Usage: {@code HeadlessRenderer [null|file.wav] [seconds]}, rendering 30 seconds to the null sink by default.
+ */
+public final class HeadlessRenderer {
+
+    // Eighth notes at 120 BPM
+    private static final long STEP_FRAMES = (long) (AudioConstants.SAMPLE_RATE * 0.25);
+
+    private static final String[] ARPEGGIO = {"C4", "E4", "G4", "C5", "A3", "C4", "E4", "A4"};
+    private static final String[] OPEN_STRINGS = {"E2", "A2", "D3", "G3", "B3", "E4"};
+    private static final int[] TONE_FREQUENCIES = {220, 440, 880, 440};
+
+    /**
+     * An instrument and its part of the groove.
+     *
+     * @param source The sound of the instrument.
+     * @param step   Plays the given eighth note of the groove, posting events to the instrument for the frame at
+     *               which the step starts.
+     */
+    private record Part(AudioSource source, IntConsumer step) {}
+
+    /**
+     * @param name  The name printed with its statistics.
+     * @param build Builds the part, its events timestamped with the frame clock of the renderer playing it.
+     */
+    private record Instrument(String name, Function<LongSupplier, Part> build) {}
+
+    private static final Instrument SYNTHESISER = new Instrument("synthesiser", HeadlessRenderer::synthesiser);
+    private static final Instrument DRUMKIT = new Instrument("drumkit", HeadlessRenderer::drumkit);
+    private static final Instrument GUITAR = new Instrument("guitar", HeadlessRenderer::guitar);
+    private static final Instrument TONE = new Instrument("tone", HeadlessRenderer::tone);
+
+    private HeadlessRenderer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = args.length > 0 ? args[0] : "null";
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 30.0;
+        long frames = (long) (seconds * AudioConstants.SAMPLE_RATE);
+
+        for (Instrument instrument : List.of(SYNTHESISER, DRUMKIT, GUITAR, TONE)) {
+            System.out.printf("%-12s %s%n", instrument.name(), render(new NullSink(), frames, List.of(instrument)));
+        }
+
+        AudioSink sink = output.equals("null") ? new NullSink() : new WavFileSink(Path.of(output));
+        System.out.printf("%-12s %s%n", "ensemble", render(sink, frames, List.of(SYNTHESISER, DRUMKIT, GUITAR)));
+        if (sink instanceof WavFileSink) System.out.println("Written to " + output);
+    }
+
+    private static OfflineRenderer.Statistics render(AudioSink sink, long frames, List<Instrument> instruments)
+            throws IOException {
+        OfflineRenderer renderer = new OfflineRenderer(sink);
+        List<Part> parts = new ArrayList<>();
+        for (Instrument instrument : instruments) {
+            Part part = instrument.build().apply(renderer.frameClock());
+            parts.add(part);
+            renderer.add(part.source());
+        }
+        return renderer.render(frames, (frame, length) -> {
+            // Every step starting within the block
+            for (long step = (frame + STEP_FRAMES - 1) / STEP_FRAMES; step * STEP_FRAMES < frame + length; step++) {
+                for (Part part : parts) part.step().accept((int) step);
+            }
+        });
+    }
+
+    private static Part synthesiser(LongSupplier frameClock) {
+        NoteEventQueue noteEvents = new NoteEventQueue(64, frameClock);
+        SynthParameters parameters = new SynthParameters(AudioConstants.Waveform.SAWTOOTH, 0.01, 0.3, 0.6, 0.2);
+        return new Part(new SynthAudioProcessor(noteEvents, new ParameterBus<>(parameters)), step -> {
+            long frame = step * STEP_FRAMES;
+            if (step > 0) noteEvents.post(NoteEvent.Type.NOTE_OFF, (step - 1) % ARPEGGIO.length, 0.0, 0.0, frame);
+            String note = ARPEGGIO[step % ARPEGGIO.length];
+            noteEvents.post(NoteEvent.Type.NOTE_ON, step % ARPEGGIO.length, AudioConstants.noteFrequencies.get(note), 1.0, frame);
+        });
+    }
+
+    private static Part drumkit(LongSupplier frameClock) {
+        NoteEventQueue noteEvents = new NoteEventQueue(64, frameClock);
+        return new Part(new DrumAudioProcessor(noteEvents), step -> {
+            long frame = step * STEP_FRAMES;
+            noteEvents.post(NoteEvent.Type.TRIGGER, DrumSound.HIHAT_CLOSED.ordinal(), 0.0, step % 2 == 0 ? 1.0 : 0.6, frame);
+            if (step % 4 == 0) noteEvents.post(NoteEvent.Type.TRIGGER, DrumSound.KICK.ordinal(), 0.0, 1.0, frame);
+            if (step % 4 == 2) noteEvents.post(NoteEvent.Type.TRIGGER, DrumSound.SNARE.ordinal(), 0.0, 1.0, frame);
+            if (step % 32 == 0) noteEvents.post(NoteEvent.Type.TRIGGER, DrumSound.CYMBAL.ordinal(), 0.0, 0.8, frame);
+        });
+    }
+
+    private static Part guitar(LongSupplier frameClock) {
+        NoteEventQueue noteEvents = new NoteEventQueue(64, frameClock);
+        SmoothedParameter distortion = new SmoothedParameter(0.3, (int) (AudioConstants.SAMPLE_RATE * 0.01));
+        return new Part(new GuitarAudioProcessor(noteEvents, distortion), step -> {
+            // An open E minor chord strummed on every beat
+            if (step % 2 != 0) return;
+            for (int string = 0; string < OPEN_STRINGS.length; string++) {
+                double frequency = AudioConstants.noteFrequencies.get(OPEN_STRINGS[string]);
+                noteEvents.post(NoteEvent.Type.NOTE_ON, string, frequency, 1.0, step * STEP_FRAMES);
+            }
+        });
+    }
+
+    // The tone follows its settings from one block to the next: its changes stay on block boundaries
+    private static Part tone(LongSupplier frameClock) {
+        ToneAudioProcessor tone = new ToneAudioProcessor();
+        tone.setPlaying(true);
+        return new Part(tone, step -> {
+            if (step % 8 != 0) return;
+            int frequency = TONE_FREQUENCIES[step / 8 % TONE_FREQUENCIES.length];
+            tone.publish(new ToneAudioProcessor.Settings(AudioConstants.Waveform.SQUARE, frequency));
+        });
+    }
+}
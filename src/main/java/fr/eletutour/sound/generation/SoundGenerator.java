@@ -1,21 +1,21 @@
 package fr.eletutour.sound.generation;
 
 import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.score.PartitionRepository;
+import fr.eletutour.sound.generation.score.RenderedScore;
+import fr.eletutour.sound.generation.score.RenderedScoreCache;
+import fr.eletutour.sound.generation.score.Score;
+import fr.eletutour.sound.generation.score.ScorePlayer;
+import fr.eletutour.sound.generation.score.ScoreRenderer;
+import fr.eletutour.sound.generation.score.ScoreStream;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import java.awt.*;
-import java.io.File;
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import java.util.List;
 
 public class SoundGenerator extends JPanel {
@@ -33,8 +33,22 @@ public class SoundGenerator extends JPanel {
     private static final Color TEXT_COLOR = new Color(50, 50, 50);
     private static final Color BORDER_COLOR = new Color(150, 150, 150);
 
-    private volatile boolean isPlaying = false;
-    private Thread playbackThread;
+    // The tone, played by the audio engine while this panel is displayed
+    private final ToneAudioProcessor tone = new ToneAudioProcessor();
+    // Rendered scores, shared by every generator window; also kept on disk when the sound.scoreCache system
+    // property names a directory
+    private static final long SCORE_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final RenderedScoreCache SCORE_CACHE = new RenderedScoreCache(SCORE_CACHE_BYTES,
+            System.getProperty("sound.scoreCache") == null ? null : Path.of(System.getProperty("sound.scoreCache")));
+    // Bundled partitions, and those of the directory named by the sound.partitions system property, indexed once
+    // for every generator window and watched for changes
+    private static final PartitionRepository PARTITIONS = openPartitions();
+    // Scores are streamed ahead on a producer thread and mixed by the audio engine, about 170 ms in advance
+    private static final int SCORE_RING_BLOCKS = 32;
+    private final ScorePlayer scorePlayer = new ScorePlayer(SCORE_RING_BLOCKS, AudioEngine.getInstance()::wake);
+    private final Timer scoreProgressTimer = new Timer(20, e -> updateScoreProgress());
+    private Score playingScore;
+    private final Runnable partitionsListener = () -> SwingUtilities.invokeLater(this::loadPartitions);
 
     public SoundGenerator() {
         super(new GridBagLayout());
@@ -68,7 +82,10 @@ public class SoundGenerator extends JPanel {
         // --- Row 1: Frequency Slider ---
         frequencySlider = new JSlider(JSlider.HORIZONTAL, 20, 8000, 440);
         frequencySlider.setBackground(BG_COLOR);
-        frequencySlider.addChangeListener(e -> frequencyLabel.setText(frequencySlider.getValue() + " Hz"));
+        frequencySlider.addChangeListener(e -> {
+            frequencyLabel.setText(frequencySlider.getValue() + " Hz");
+            publishToneSettings();
+        });
         gbc.gridy = 1;
         gbc.anchor = GridBagConstraints.CENTER;
         gbc.fill = GridBagConstraints.HORIZONTAL;
@@ -108,6 +125,7 @@ public class SoundGenerator extends JPanel {
             styleWaveButton(waveButton);
             waveButton.setActionCommand(w.name());
             if (w == AudioConstants.Waveform.SINE) waveButton.setSelected(true);
+            waveButton.addActionListener(e -> publishToneSettings());
             waveformGroup.add(waveButton);
             waveformPanel.add(waveButton);
         }
@@ -124,6 +142,7 @@ public class SoundGenerator extends JPanel {
         scorePanel.setBackground(BG_COLOR);
 
         scoreSelector = new JComboBox<>();
+        scoreSelector.addActionListener(e -> describeSelectedScore());
         loadPartitions(); // Populate the dropdown
         scorePanel.add(new JLabel("Score:"));
         scorePanel.add(scoreSelector);
@@ -138,95 +157,89 @@ public class SoundGenerator extends JPanel {
         add(scorePanel, gbc);
     }
 
-    private void loadPartitions() {
-        try {
-            URL resource = getClass().getClassLoader().getResource("partitions");
-            if (resource == null) {
-                System.err.println("Partitions directory not found!");
-                return;
-            }
+    private void publishToneSettings() {
+        AudioConstants.Waveform waveform = AudioConstants.Waveform.valueOf(waveformGroup.getSelection().getActionCommand());
+        tone.publish(new ToneAudioProcessor.Settings(waveform, frequencySlider.getValue()));
+    }
 
-            File dir = new File(resource.toURI());
-            File[] files = dir.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    scoreSelector.addItem(file.getName());
-                }
-            }
-        } catch (URISyntaxException | NullPointerException e) {
+    private static PartitionRepository openPartitions() {
+        String directory = System.getProperty("sound.partitions");
+        try {
+            return PartitionRepository.open("partitions", directory == null ? null : Path.of(directory));
+        } catch (IOException e) {
             e.printStackTrace();
+            return PartitionRepository.empty();
         }
     }
 
+    /**
+     * Fills the dropdown from the partition index, keeping the selection. Called again whenever partitions change.
+     */
+    private void loadPartitions() {
+        Object selected = scoreSelector.getSelectedItem();
+        scoreSelector.removeAllItems();
+        List<PartitionRepository.Entry> entries = PARTITIONS.list();
+        if (entries.isEmpty()) System.err.println("No partition found!");
+        for (PartitionRepository.Entry entry : entries) {
+            scoreSelector.addItem(entry.name());
+        }
+        if (selected != null) scoreSelector.setSelectedItem(selected);
+    }
+
+    private void describeSelectedScore() {
+        String selectedScore = (String) scoreSelector.getSelectedItem();
+        PartitionRepository.Entry entry = selectedScore == null ? null : PARTITIONS.entry(selectedScore);
+        scoreSelector.setToolTipText(entry == null ? null : String.format("%d notes, %d:%02d",
+                entry.noteCount(), entry.durationMs() / 60000, entry.durationMs() / 1000 % 60));
+    }
+
     private void playScore() {
         String selectedScore = (String) scoreSelector.getSelectedItem();
         if (selectedScore == null) return;
+        PartitionRepository.Entry entry = PARTITIONS.entry(selectedScore);
+        if (entry == null) return; // Deleted since the dropdown was filled
+
+        AudioConstants.Waveform waveform = AudioConstants.Waveform.valueOf(waveformGroup.getSelection().getActionCommand());
+        RenderedScoreCache.Key key = new RenderedScoreCache.Key(entry.name(), entry.lastModified(), waveform, AudioConstants.SAMPLE_RATE);
+        Score score;
+        try {
+            score = PARTITIONS.score(entry.name()); // Parsed only the first time
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            return;
+        }
+        // A score already rendered with these settings is only copied out; otherwise it starts at once, rendered
+        // live, while it is rendered for the next time in the background
+        RenderedScore rendered = SCORE_CACHE.getIfPresent(key);
+        ScoreStream stream;
+        if (rendered != null) {
+            stream = rendered.stream();
+        } else {
+            stream = new ScoreRenderer(score, waveform, AudioConstants.SAMPLE_RATE);
+            SCORE_CACHE.load(key, score);
+        }
 
         playScoreButton.setEnabled(false);
         onOffButton.setEnabled(false);
 
-        new Thread(() -> {
-            try {
-                URL resource = getClass().getClassLoader().getResource("partitions/" + selectedScore);
-                if (resource == null) {
-                    throw new IOException("Score file not found: " + selectedScore);
-                }
-                List<String> lines = Files.readAllLines(Paths.get(resource.toURI()));
-
-                AudioFormat audioFormat = new AudioFormat(AudioConstants.SAMPLE_RATE, 16, 1, true, true);
-                try (SourceDataLine line = AudioSystem.getSourceDataLine(audioFormat)) {
-                    line.open(audioFormat);
-                    line.start();
-
-                    for (String l : lines) {
-                        String[] parts = l.split(",");
-                        if (parts.length != 2) continue;
-
-                        String noteName = parts[0].trim();
-                        int durationMs = Integer.parseInt(parts[1].trim());
-
-                        if (noteName.equalsIgnoreCase("REST")) {
-                            Thread.sleep(durationMs);
-                            continue;
-                        }
-
-                        Double frequency = AudioConstants.noteFrequencies.get(noteName);
-                        if (frequency == null) continue; // Skip unknown notes
-
-                        final int freqInt = frequency.intValue();
-                        SwingUtilities.invokeLater(() -> frequencySlider.setValue(freqInt));
-
-                        byte[] buffer = generateNote(frequency, durationMs, audioFormat);
-                        line.write(buffer, 0, buffer.length);
-                    }
-                    line.drain();
-                }
-
-            } catch (IOException | URISyntaxException | LineUnavailableException | NumberFormatException | InterruptedException e) {
-                e.printStackTrace();
-            } finally {
-                SwingUtilities.invokeLater(() -> {
-                    playScoreButton.setEnabled(true);
-                    onOffButton.setEnabled(true);
-                });
-            }
-        }).start();
+        playingScore = score;
+        scorePlayer.play(stream);
+        scoreProgressTimer.start();
     }
 
-    private byte[] generateNote(double frequency, int durationMs, AudioFormat format) {
-        int numSamples = (int) ((durationMs / 1000.0) * format.getSampleRate());
-        byte[] buffer = new byte[numSamples * 2];
-        double angleIncrement = (2.0 * Math.PI * frequency) / format.getSampleRate();
-        double currentAngle = 0.0;
-
-        for (int i = 0; i < buffer.length; i += 2) {
-            double sampleValue = Math.sin(currentAngle);
-            short pcmValue = (short) (sampleValue * Short.MAX_VALUE);
-            buffer[i] = (byte) (pcmValue >> 8);
-            buffer[i + 1] = (byte) pcmValue;
-            currentAngle += angleIncrement;
+    /**
+     * Follows the score being heard on the frequency slider, and gives the controls back once it is over.
+     */
+    private void updateScoreProgress() {
+        int event = scorePlayer.getCurrentEvent();
+        if (event >= 0 && event < playingScore.size() && playingScore.frequency(event) > 0.0) {
+            frequencySlider.setValue((int) playingScore.frequency(event));
+        }
+        if (!scorePlayer.isPlaying()) {
+            scoreProgressTimer.stop();
+            playScoreButton.setEnabled(true);
+            onOffButton.setEnabled(true);
         }
-        return buffer;
     }
 
     private void styleBigButton(JToggleButton button) {
@@ -254,63 +267,32 @@ public class SoundGenerator extends JPanel {
     }
 
     private void startPlayback() {
-        if (isPlaying) return;
-        isPlaying = true;
-
-        playbackThread = new Thread(() -> {
-            SourceDataLine line = null;
-            try {
-                AudioFormat audioFormat = new AudioFormat(AudioConstants.SAMPLE_RATE, 16, 1, true, true);
-                line = AudioSystem.getSourceDataLine(audioFormat);
-                line.open(audioFormat);
-                line.start();
-
-                double currentAngle = 0.0;
-                byte[] buffer = new byte[1024];
-
-                while (isPlaying) {
-                    AudioConstants.Waveform selectedWaveform = AudioConstants.Waveform.valueOf(waveformGroup.getSelection().getActionCommand());
-                    int frequency = frequencySlider.getValue();
-                    double angleIncrement = (2.0 * Math.PI * frequency) / audioFormat.getSampleRate();
-
-                    for (int i = 0; i < buffer.length; i += 2) {
-                        short pcmValue = getPcmValue(currentAngle, selectedWaveform);
-                        buffer[i] = (byte) (pcmValue >> 8);
-                        buffer[i + 1] = (byte) pcmValue;
-                        currentAngle += angleIncrement;
-                    }
-                    line.write(buffer, 0, buffer.length);
-                }
-                line.drain();
-            } catch (LineUnavailableException ex) {
-                SwingUtilities.invokeLater(() -> {
-                    onOffButton.setSelected(false);
-                    onOffButton.setText("PLAY");
-                    JOptionPane.showMessageDialog(this, "Audio line unavailable.", "Error", JOptionPane.ERROR_MESSAGE);
-                });
-            } finally {
-                if (line != null) line.close();
-            }
-        });
-        playbackThread.start();
+        if (tone.isPlaying()) return;
+        tone.setPlaying(true);
+        AudioEngine.getInstance().wake();
     }
 
-    private static short getPcmValue(double currentAngle, AudioConstants.Waveform selectedWaveform) {
-        double sampleValue = 0.0;
-        double normalizedAngle = currentAngle % (2.0 * Math.PI);
-
-        sampleValue = switch (selectedWaveform) {
-            case SINE -> Math.sin(currentAngle);
-            case SQUARE -> Math.signum(Math.sin(currentAngle));
-            case TRIANGLE -> (2.0 / Math.PI) * Math.asin(Math.sin(currentAngle));
-            case SAWTOOTH -> (normalizedAngle / Math.PI) - 1.0;
-        };
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        AudioEngine.getInstance().attach(tone);
+        AudioEngine.getInstance().attach(scorePlayer);
+        PARTITIONS.addChangeListener(partitionsListener);
+    }
 
-        return (short) (sampleValue * Short.MAX_VALUE);
+    @Override
+    public void removeNotify() {
+        // Called when the window is disposed: the tone and the score stop with it
+        PARTITIONS.removeChangeListener(partitionsListener);
+        AudioEngine.getInstance().detach(tone);
+        scorePlayer.stop();
+        scoreProgressTimer.stop();
+        AudioEngine.getInstance().detach(scorePlayer);
+        super.removeNotify();
     }
 
     private void stopPlayback() {
-        isPlaying = false;
+        tone.setPlaying(false);
     }
 
     public static void main(String[] args) {
@@ -322,7 +304,7 @@ public class SoundGenerator extends JPanel {
             }
 
             JFrame frame = new JFrame("Sound Synthesizer");
-            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
             frame.setContentPane(new SoundGenerator());
             frame.pack();
             frame.setMinimumSize(frame.getSize());
@@ -0,0 +1,59 @@
+package fr.eletutour.sound.generation;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.engine.AudioSource;
+import fr.eletutour.sound.generation.engine.ParameterBus;
+import fr.eletutour.sound.generation.oscillator.Oscillator;
+
+/**
+ * The continuous tone of the {@link SoundGenerator}, rendered on the render thread of the {@link AudioEngine}.
+ * Needs no window, so it can also be rendered offline.
+ */
+public final class ToneAudioProcessor implements AudioSource {
+
+    /**
+     * The tone settings read by the render thread, published by the controls whenever they change.
+     *
+     * @param waveform  The waveform of the tone.
+     * @param frequency The frequency of the tone in Hz.
+     */
+    public record Settings(AudioConstants.Waveform waveform, int frequency) {}
+
+    private final ParameterBus<Settings> settings = new ParameterBus<>(new Settings(AudioConstants.Waveform.SINE, 440));
+    private volatile boolean playing = false;
+    // The oscillator phase wraps on every cycle, unlike an angle growing for the whole session
+    private final Oscillator oscillator = new Oscillator(AudioConstants.Waveform.SINE);
+
+    /**
+     * Changes the tone. May be called from any thread.
+     */
+    public void publish(Settings settings) {
+        this.settings.publish(settings);
+    }
+
+    /**
+     * Starts or stops the tone. May be called from any thread; an idle engine must then be woken up.
+     */
+    public void setPlaying(boolean playing) {
+        this.playing = playing;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public boolean render(double[] mix, int length) {
+        if (!playing) return false;
+
+        // Settings published by the controls, read without touching the Swing models
+        Settings settings = this.settings.read();
+        oscillator.setWaveform(settings.waveform());
+        oscillator.setFrequency(settings.frequency());
+        for (int i = 0; i < length; i++) {
+            mix[i] += oscillator.next();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package fr.eletutour.sound.generation.drum;
+
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.engine.AudioSource;
+import fr.eletutour.sound.generation.engine.NoteEvent;
+import fr.eletutour.sound.generation.engine.NoteEventQueue;
+
+import java.util.Random;
+
+/**
+ * The sound of the drum kit: hits triggered through a {@link NoteEventQueue} and played by a pool of voices on
+ * the render thread of the {@link AudioEngine}. Needs no window, so it can also be rendered offline.
+ */
+public final class DrumAudioProcessor implements AudioSource {
+
+    private static final DrumSound[] SOUNDS = DrumSound.values();
+    private static final int NUM_VOICES = 8;
+
+    private final NoteEventQueue noteEvents;
+    private final DrumVoicePool voices;
+
+    /**
+     * @param noteEvents The hits, as {@link NoteEvent.Type#TRIGGER} events keyed by {@link DrumSound} ordinal.
+     */
+    public DrumAudioProcessor(NoteEventQueue noteEvents) {
+        this(noteEvents, new DrumVoicePool(NUM_VOICES, new DrumSampleBank(new Random())));
+    }
+
+    DrumAudioProcessor(NoteEventQueue noteEvents, DrumVoicePool voices) {
+        this.noteEvents = noteEvents;
+        this.voices = voices;
+    }
+
+    /**
+     * Adds the playing voices to a block, starting each pending hit at its offset in the block.
+     *
+     * @return true while a voice is still playing.
+     */
+    @Override
+    public boolean render(double[] mix, int length) {
+        int events = noteEvents.drain(length);
+        int position = 0;
+        for (int e = 0; e < events; e++) {
+            NoteEvent event = noteEvents.get(e);
+            voices.render(mix, position, event.offset());
+            position = event.offset();
+            switch (event.type()) {
+                case TRIGGER -> voices.trigger(SOUNDS[event.key()], event.velocity());
+                case ALL_NOTES_OFF -> voices.stopAll();
+                default -> { }
+            }
+        }
+        voices.render(mix, position, length);
+        return voices.getActiveVoices() > 0;
+    }
+}
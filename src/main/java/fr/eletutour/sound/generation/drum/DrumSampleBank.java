@@ -0,0 +1,110 @@
+package fr.eletutour.sound.generation.drum;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+import java.util.Random;
+
+/**
+ * Every {@link DrumSound} rendered once, at startup, into a float buffer.
+ * <p>
+ * Apart from their noise, the hits are fully deterministic, so there is no reason to synthesise them again for
+ * each hit: a voice only has to play a buffer back with a gain. The sounds made of noise (snare and hi-hat) are
+ * rendered in a few variants, played in turn, so that fast rolls do not sound like the same sample repeated.
+ */
+final class DrumSampleBank {
+
+    private static final int NOISE_VARIANTS = 4;
+    // Non-harmonic frequencies for a metallic sound
+    private static final double[] CYMBAL_FREQUENCIES = {220.5, 340.1, 410.3, 550.6, 680.8, 815.2};
+
+    // Indexed by sound ordinal, then by variant
+    private final float[][][] samples;
+    private final int[] nextVariant;
+
+    /**
+     * Renders the whole kit.
+     *
+     * @param random The noise source for the snare and hi-hat.
+     */
+    DrumSampleBank(Random random) {
+        DrumSound[] sounds = DrumSound.values();
+        this.samples = new float[sounds.length][][];
+        this.nextVariant = new int[sounds.length];
+        for (DrumSound sound : sounds) {
+            boolean noisy = sound == DrumSound.SNARE || sound == DrumSound.HIHAT_CLOSED;
+            float[][] variants = new float[noisy ? NOISE_VARIANTS : 1][];
+            for (int v = 0; v < variants.length; v++) {
+                variants[v] = render(sound, random);
+            }
+            samples[sound.ordinal()] = variants;
+        }
+    }
+
+    /**
+     * Returns the sample to play for a new hit, cycling through the variants of the sound. Used by the audio
+     * thread only.
+     *
+     * @param sound The sound hit.
+     * @return The rendered sample, which must not be modified.
+     */
+    float[] next(DrumSound sound) {
+        float[][] variants = samples[sound.ordinal()];
+        int variant = nextVariant[sound.ordinal()];
+        nextVariant[sound.ordinal()] = (variant + 1) % variants.length;
+        return variants[variant];
+    }
+
+    private static float[] render(DrumSound sound, Random random) {
+        double duration = switch (sound) {
+            case KICK, SNARE -> 0.15; // 150ms
+            case HIHAT_CLOSED -> 0.05; // 50ms
+            case CYMBAL -> 1.5; // 1.5 seconds
+        };
+        float[] sample = new float[(int) (duration * AudioConstants.SAMPLE_RATE) + 1];
+        double previousNoise = 0.0;
+        double[] cymbalPositions = new double[CYMBAL_FREQUENCIES.length];
+
+        for (int n = 0; n < sample.length; n++) {
+            double position = n / (double) AudioConstants.SAMPLE_RATE;
+            double value = 0;
+            double envelope = 0;
+
+            switch (sound) {
+                case KICK:
+                    envelope = Math.pow(1.0 - (position / duration), 2);
+                    double pitch = 150.0 * Math.exp(-position * 35.0); // Fast pitch drop
+                    value = Math.sin(position * 2 * Math.PI * pitch);
+                    break;
+
+                case SNARE:
+                    envelope = Math.pow(1.0 - (position / duration), 3);
+                    double tone = Math.sin(position * 2 * Math.PI * 180.0);
+                    value = (tone * 0.4) + ((random.nextDouble() * 2 - 1) * 0.6);
+                    break;
+
+                case HIHAT_CLOSED:
+                    envelope = Math.pow(1.0 - (position / duration), 2);
+                    double noise = random.nextDouble() * 2 - 1;
+                    // Simple high-pass filter on noise
+                    value = noise - previousNoise;
+                    previousNoise = noise;
+                    break;
+
+                case CYMBAL:
+                    // Fast attack, long decay
+                    envelope = Math.pow(1.0 - (position / duration), 2);
+                    double cymbalSample = 0;
+                    for (int i = 0; i < CYMBAL_FREQUENCIES.length; i++) {
+                        // Square wave for metallic sound
+                        cymbalSample += Math.signum(Math.sin(cymbalPositions[i] * 2 * Math.PI));
+                        cymbalPositions[i] += CYMBAL_FREQUENCIES[i] / AudioConstants.SAMPLE_RATE;
+                        if (cymbalPositions[i] > 1.0) cymbalPositions[i] -= 1.0;
+                    }
+                    value = (cymbalSample / CYMBAL_FREQUENCIES.length) * 0.5; // Reduce volume
+                    break;
+            }
+            sample[n] = (float) (value * envelope);
+        }
+        return sample;
+    }
+}
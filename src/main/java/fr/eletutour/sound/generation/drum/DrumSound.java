@@ -0,0 +1,22 @@
+package fr.eletutour.sound.generation.drum;
+
+/**
+ * The sounds of the kit, with how many voices each may use at once and its choke group: starting a sound
+ * silences the voices of the same group that are still ringing, 0 meaning no group.
+ */
+public enum DrumSound {
+    KICK(2, 0),
+    SNARE(3, 0),
+    // A hi-hat cannot ring twice: a new hit cuts the previous one
+    HIHAT_CLOSED(2, 1),
+    // A single cymbal: hitting it again restarts the ring rather than stacking 1.5 s tails
+    CYMBAL(2, 2);
+
+    final int maxVoices;
+    final int chokeGroup;
+
+    DrumSound(int maxVoices, int chokeGroup) {
+        this.maxVoices = maxVoices;
+        this.chokeGroup = chokeGroup;
+    }
+}
@@ -0,0 +1,121 @@
+package fr.eletutour.sound.generation.drum;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+/**
+ * One drum hit being played: a cursor into a sample of the {@link DrumSampleBank}, with a gain. Voices are
+ * allocated once by the {@link DrumVoicePool} and reused for every hit, so triggering a sound allocates nothing.
+ * <p>
+ * Triggering a voice that is still playing does not cut the previous hit mid-waveform: it moves to the tail of
+ * the voice, which fades out over the same 5 ms as a choke while the new hit starts.
+ */
+class DrumVoice {
+    // A choked voice fades out over 5 ms instead of stopping with a click
+    private static final int CHOKE_SAMPLES = (int) (AudioConstants.SAMPLE_RATE * 0.005);
+
+    private DrumSound sound;
+    private float[] sample;
+    private double gain;
+    private int position = 0;
+    private boolean active = false;
+    private int chokeRemaining = -1;
+
+    // The previous hit, fading out after the voice was triggered again
+    private float[] tailSample;
+    private double tailGain;
+    private int tailPosition;
+    private int tailRemaining = 0;
+
+    /**
+     * Starts playing a sample from its beginning.
+     *
+     * @param sound  The sound hit.
+     * @param sample The rendered sample, from the bank.
+     * @param gain   The gain of the hit, 1.0 for a full-strength hit.
+     */
+    void trigger(DrumSound sound, float[] sample, double gain) {
+        if (active) {
+            // A fade already under way carries on from where it is; a tail still fading from an earlier steal,
+            // at most 5 ms old, is replaced
+            tailSample = this.sample;
+            tailGain = this.gain;
+            tailPosition = position;
+            tailRemaining = chokeRemaining < 0 ? CHOKE_SAMPLES : chokeRemaining;
+        }
+        this.sound = sound;
+        this.sample = sample;
+        this.gain = gain;
+        this.position = 0;
+        this.active = true;
+        this.chokeRemaining = -1;
+    }
+
+    /**
+     * Fades the voice out quickly, when its choke group is hit again.
+     */
+    void choke() {
+        if (active && chokeRemaining < 0) chokeRemaining = CHOKE_SAMPLES;
+    }
+
+    /**
+     * @return true while the voice plays a hit that has not been choked.
+     */
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return true while the voice is choked and fading out.
+     */
+    boolean isChoking() {
+        return active && chokeRemaining >= 0;
+    }
+
+    /**
+     * @return true while the voice adds anything to the mix: a hit, or the tail of the previous one.
+     */
+    boolean isSounding() {
+        return active || tailRemaining > 0;
+    }
+
+    DrumSound getSound() {
+        return sound;
+    }
+
+    /**
+     * @return The number of samples played since the voice was triggered.
+     */
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * Adds the voice to {@code mix} from {@code from} inclusive to {@code to} exclusive, or until it ends.
+     */
+    void render(double[] mix, int from, int to) {
+        if (tailRemaining > 0) renderTail(mix, from, to);
+        if (!active) return;
+        int end = Math.min(to, from + sample.length - position);
+        if (chokeRemaining < 0) {
+            for (int i = from; i < end; i++) {
+                mix[i] += sample[position++] * gain;
+            }
+        } else {
+            for (int i = from; i < end && chokeRemaining > 0; i++) {
+                mix[i] += sample[position++] * gain * chokeRemaining / CHOKE_SAMPLES;
+                chokeRemaining--;
+            }
+            if (chokeRemaining == 0) active = false;
+        }
+        if (position == sample.length) active = false;
+    }
+
+    private void renderTail(double[] mix, int from, int to) {
+        int end = Math.min(to, from + Math.min(tailSample.length - tailPosition, tailRemaining));
+        for (int i = from; i < end; i++) {
+            mix[i] += tailSample[tailPosition++] * tailGain * tailRemaining / CHOKE_SAMPLES;
+            tailRemaining--;
+        }
+        if (tailPosition == tailSample.length) tailRemaining = 0;
+    }
+}
@@ -0,0 +1,98 @@
+package fr.eletutour.sound.generation.drum;
+
+/**
+ * A fixed set of drum voices, allocated once and reused for every hit, playing samples from a
+ * {@link DrumSampleBank}.
+ * <p>
+ * However fast the keys are hammered, the number of voices playing never exceeds the pool size, so the cost of
+ * rendering a block is bounded and triggering a hit allocates nothing. Each {@link DrumSound} may use at most
+ * {@link DrumSound#maxVoices} voices; a hit beyond that, or on a full pool, steals the oldest voice. Hitting a
+ * sound also chokes the voices still ringing in its {@link DrumSound#chokeGroup choke group}.
+ * <p>
+ * Choked voices are left to finish their fade: they do not count against the limit of their sound, and a free
+ * voice or a voice still ringing is taken before them. A stolen voice fades its previous hit out in its tail, so
+ * stealing never restarts a sample mid-waveform.
+ * <p>
+ * Used by the audio thread only.
+ */
+final class DrumVoicePool {
+
+    private final DrumVoice[] voices;
+    private final DrumSampleBank bank;
+
+    /**
+     * @param size The number of voices.
+     * @param bank The rendered sounds.
+     */
+    DrumVoicePool(int size, DrumSampleBank bank) {
+        this.voices = new DrumVoice[size];
+        for (int i = 0; i < size; i++) {
+            voices[i] = new DrumVoice();
+        }
+        this.bank = bank;
+    }
+
+    /**
+     * Starts a hit on a free voice, or on the voice stolen for it.
+     *
+     * @param sound The sound to play.
+     * @param gain  The gain of the hit, 1.0 for a full-strength hit.
+     */
+    void trigger(DrumSound sound, double gain) {
+        DrumVoice free = null, oldest = null, oldestRinging = null, oldestSameSound = null;
+        int sameSound = 0;
+        for (DrumVoice voice : voices) {
+            if (!voice.isActive()) {
+                if (free == null) free = voice;
+                continue;
+            }
+            DrumSound playing = voice.getSound();
+            if (sound.chokeGroup != 0 && playing.chokeGroup == sound.chokeGroup) {
+                voice.choke();
+            }
+            if (oldest == null || voice.getPosition() > oldest.getPosition()) oldest = voice;
+            if (voice.isChoking()) continue;
+            if (playing == sound) {
+                sameSound++;
+                if (oldestSameSound == null || voice.getPosition() > oldestSameSound.getPosition()) oldestSameSound = voice;
+            }
+            if (oldestRinging == null || voice.getPosition() > oldestRinging.getPosition()) oldestRinging = voice;
+        }
+
+        DrumVoice voice;
+        if (sameSound >= sound.maxVoices) voice = oldestSameSound;
+        else if (free != null) voice = free;
+        else if (oldestRinging != null) voice = oldestRinging;
+        else voice = oldest;
+        voice.trigger(sound, bank.next(sound), gain);
+    }
+
+    /**
+     * Silences every voice at once.
+     */
+    void stopAll() {
+        for (DrumVoice voice : voices) {
+            voice.choke();
+        }
+    }
+
+    /**
+     * Adds the playing voices to {@code mix} from {@code from} inclusive to {@code to} exclusive.
+     */
+    void render(double[] mix, int from, int to) {
+        for (DrumVoice voice : voices) {
+            voice.render(mix, from, to);
+        }
+    }
+
+    /**
+     * @return The number of voices currently playing, a hit or the fading tail of a stolen one.
+     */
+    int getActiveVoices() {
+        int active = 0;
+        for (DrumVoice voice : voices) {
+            if (voice.isSounding()) active++;
+        }
+        return active;
+    }
+}
@@ -0,0 +1,242 @@
+package fr.eletutour.sound.generation.engine;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+import javax.sound.sampled.AudioFormat;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * The single audio output shared by every instrument of the application.
+ * <p>
+ * The engine owns one {@link AudioSink output} and one render thread, which mixes the {@link AudioSource sources} attached
+ * to it block by block. Several instruments can therefore play together for the cost of a single device stream,
+ * instead of each opening its own line and spinning its own thread.
+ * <p>
+ * When every source reports that it is silent, the render thread parks instead of writing silence forever, and
+ * sources call {@link #wake()} when they have something to play again (see
+ * {@link NoteEventQueue#setPostListener(Runnable)}). The output is released when the last source is detached,
+ * which happens automatically when the window of an instrument closes. If the output fails, the user is told and
+ * the engine keeps trying to open it again, with the sources still attached.
+ * <p>
+ * The engine plays on the sound device in real time; {@link OfflineRenderer} drives the same sources into any
+ * sink as fast as they can render.
+ */
+public final class AudioEngine {
+
+    /** The output format: mono, 16-bit signed big-endian PCM. */
+    public static final AudioFormat FORMAT = new AudioFormat(AudioConstants.SAMPLE_RATE, 16, 1, true, true);
+    /** The number of samples rendered per block. */
+    public static final int BLOCK_SIZE = 512;
+    // Four blocks of buffering in the line, about 21 ms at 96 kHz
+    private static final int LINE_BUFFER_BYTES = BLOCK_SIZE * 2 * 4;
+    // Retries of a failed output, doubling from a quarter of a second up to five seconds
+    private static final long FIRST_RETRY_NANOS = 250_000_000L;
+    private static final long MAX_RETRY_NANOS = 5_000_000_000L;
+
+    private static final AudioEngine INSTANCE = new AudioEngine(() -> new LineSink(LINE_BUFFER_BYTES));
+
+    private final Supplier<AudioSink> sinkFactory;
+    private final Object lock = new Object();
+    private volatile AudioSource[] sources = new AudioSource[0];
+    private volatile Thread renderThread;
+    private final AtomicBoolean wakeRequested = new AtomicBoolean();
+
+    private AudioEngine(Supplier<AudioSink> sinkFactory) {
+        this.sinkFactory = sinkFactory;
+    }
+
+    /**
+     * @return The engine of the application.
+     */
+    public static AudioEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts mixing a source, starting the render thread if needed.
+     *
+     * @param source The source to play.
+     */
+    public void attach(AudioSource source) {
+        synchronized (lock) {
+            AudioSource[] attached = Arrays.copyOf(sources, sources.length + 1);
+            attached[attached.length - 1] = source;
+            sources = attached;
+            if (renderThread == null) {
+                Thread thread = new Thread(this::renderLoop, "audio-engine");
+                // The engine never keeps the application alive once its windows are closed
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MAX_PRIORITY);
+                renderThread = thread;
+                thread.start();
+            }
+        }
+        wake();
+    }
+
+    /**
+     * Starts mixing a source for as long as a window stays open. The window must be disposed on close rather than
+     * exit the application, so that closing one instrument leaves the others playing.
+     *
+     * @param source The source to play.
+     * @param window The window owning the source.
+     */
+    public void attach(AudioSource source, Window window) {
+        attach(source);
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                detach(source);
+            }
+        });
+    }
+
+    /**
+     * Stops mixing a source. Does nothing if it is not attached.
+     *
+     * @param source The source to remove.
+     */
+    public void detach(AudioSource source) {
+        synchronized (lock) {
+            AudioSource[] current = sources;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == source) {
+                    AudioSource[] remaining = new AudioSource[current.length - 1];
+                    System.arraycopy(current, 0, remaining, 0, i);
+                    System.arraycopy(current, i + 1, remaining, i, current.length - i - 1);
+                    sources = remaining;
+                    break;
+                }
+            }
+        }
+        wake();
+    }
+
+    /**
+     * Asks the render thread to resume if it is idle. Cheap, never blocks, and may be called from any thread.
+     */
+    public void wake() {
+        wakeRequested.set(true);
+        Thread thread = renderThread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Renders until the application ends. When the output fails, at open or while playing, the sources stay
+     * attached and the output is opened again after a back-off, so that instruments already open play again as
+     * soon as the device is back.
+     */
+    private void renderLoop() {
+        long retryNanos = FIRST_RETRY_NANOS;
+        boolean failing = false;
+        while (true) {
+            try {
+                renderUntilFailure();
+            } catch (IOException | RuntimeException e) {
+                // Only the first failure of a run is shown: the retries would flood the user
+                if (!failing) report(e);
+                failing = true;
+                LockSupport.parkNanos(this, retryNanos);
+                retryNanos = Math.min(MAX_RETRY_NANOS, retryNanos * 2);
+                continue;
+            }
+            retryNanos = FIRST_RETRY_NANOS;
+            failing = false;
+        }
+    }
+
+    /**
+     * Mixes the sources into the output, releasing it whenever they are all detached.
+     *
+     * @throws IOException If the output failed.
+     */
+    private void renderUntilFailure() throws IOException {
+        double[] mix = new double[BLOCK_SIZE];
+        byte[] buffer = new byte[BLOCK_SIZE * 2];
+        AudioSink sink = null;
+        try {
+            while (true) {
+                AudioSource[] current = sources;
+                if (current.length == 0) {
+                    // Nobody left to play: give the device back until a source is attached again
+                    if (sink != null) {
+                        sink.drain();
+                        sink.close();
+                        sink = null;
+                    }
+                    idle();
+                    continue;
+                }
+
+                boolean sounding = mix(current, mix, BLOCK_SIZE);
+                toPcm(mix, buffer);
+
+                if (sink == null) {
+                    sink = sinkFactory.get();
+                    sink.open(FORMAT);
+                }
+                sink.write(buffer, 0, buffer.length);
+
+                // The block just written carried the last of the sound: wait for something new to play
+                if (!sounding) idle();
+            }
+        } finally {
+            if (sink != null) {
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void report(Exception e) {
+        e.printStackTrace();
+        if (GraphicsEnvironment.isHeadless()) return;
+        String message = "The audio output failed: " + e.getMessage()
+                + "\nThe instruments stay open and will play again as soon as the output is available.";
+        SwingUtilities.invokeLater(() ->
+                JOptionPane.showMessageDialog(null, message, "Audio output", JOptionPane.WARNING_MESSAGE));
+    }
+
+    private void idle() {
+        while (!wakeRequested.getAndSet(false)) {
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Clears a block and adds every source to it.
+     *
+     * @return true if at least one source was sounding.
+     */
+    static boolean mix(AudioSource[] sources, double[] mix, int length) {
+        Arrays.fill(mix, 0, length, 0.0);
+        boolean sounding = false;
+        for (AudioSource source : sources) {
+            sounding |= source.render(mix, length);
+        }
+        return sounding;
+    }
+
+    /**
+     * Converts a block to 16-bit big-endian PCM, clipping it to full scale.
+     */
+    static void toPcm(double[] mix, byte[] buffer) {
+        for (int i = 0; i < mix.length; i++) {
+            double sample = Math.max(-1.0, Math.min(1.0, mix[i]));
+            short pcmValue = (short) (sample * Short.MAX_VALUE);
+            buffer[i * 2] = (byte) (pcmValue >> 8);
+            buffer[i * 2 + 1] = (byte) pcmValue;
+        }
+    }
+}
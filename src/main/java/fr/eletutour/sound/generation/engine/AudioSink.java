@@ -0,0 +1,52 @@
+package fr.eletutour.sound.generation.engine;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * Where rendered audio goes: a sound device, a file, or nowhere.
+ * <p>
+ * The sink is also the clock of the renderer writing to it. A device sink paces the renderer by blocking in
+ * {@link #write(byte[], int, int)} until the device has room; the other sinks return at once, so rendering runs
+ * as fast as the CPU allows and time is measured in frames written instead.
+ */
+public interface AudioSink extends AutoCloseable {
+
+    /**
+     * Prepares the sink. Called once, before the first write.
+     *
+     * @param format The format of the data that will be written.
+     * @throws IOException If the output cannot be opened.
+     */
+    void open(AudioFormat format) throws IOException;
+
+    /**
+     * Writes PCM data, blocking only if the sink is paced by a real device.
+     *
+     * @param buffer The data, in the format given to {@link #open(AudioFormat)}.
+     * @param offset The index of the first byte to write.
+     * @param length The number of bytes to write, a whole number of frames.
+     * @throws IOException If writing failed.
+     */
+    void write(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * @return The number of frames the sink has consumed so far: played by a device, or written otherwise.
+     */
+    long getFramePosition();
+
+    /**
+     * Waits until everything written has been played or stored.
+     *
+     * @throws IOException If flushing failed.
+     */
+    void drain() throws IOException;
+
+    /**
+     * Releases the output. The sink cannot be reopened.
+     *
+     * @throws IOException If finishing the output failed.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,22 @@
+package fr.eletutour.sound.generation.engine;
+
+/**
+ * Something the {@link AudioEngine} plays: an instrument, a tone generator, a score.
+ * <p>
+ * Sources are called on the engine's render thread only, one block at a time, and must neither block nor
+ * allocate there. Input from other threads reaches them through a {@link NoteEventQueue} or a
+ * {@link ParameterBus}.
+ */
+@FunctionalInterface
+public interface AudioSource {
+
+    /**
+     * Adds the next block of this source to {@code mix}, at a nominal level of -1 to 1.
+     *
+     * @param mix    The block being mixed, shared by all the sources.
+     * @param length The number of samples to render, at most {@link AudioEngine#BLOCK_SIZE}.
+     * @return true while the source is sounding, false once it is silent: when every source is silent the engine
+     * stops rendering until it is {@link AudioEngine#wake() woken}.
+     */
+    boolean render(double[] mix, int length);
+}
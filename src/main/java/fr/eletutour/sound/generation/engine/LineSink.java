@@ -0,0 +1,55 @@
+package fr.eletutour.sound.generation.engine;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+
+/**
+ * Plays audio on the default sound device. Writes block while the device buffer is full, so the device clock
+ * paces the renderer.
+ */
+public final class LineSink implements AudioSink {
+
+    private final int bufferBytes;
+    private SourceDataLine line;
+
+    /**
+     * @param bufferBytes The size of the device buffer, which sets the output latency.
+     */
+    public LineSink(int bufferBytes) {
+        this.bufferBytes = bufferBytes;
+    }
+
+    @Override
+    public void open(AudioFormat format) throws IOException {
+        try {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, bufferBytes);
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            throw new IOException("Audio output unavailable for " + format, e);
+        }
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+        line.write(buffer, offset, length);
+    }
+
+    @Override
+    public long getFramePosition() {
+        return line == null ? 0 : line.getLongFramePosition();
+    }
+
+    @Override
+    public void drain() {
+        if (line != null) line.drain();
+    }
+
+    @Override
+    public void close() {
+        if (line != null) line.close();
+    }
+}
@@ -0,0 +1,85 @@
+package fr.eletutour.sound.generation.engine;
+
+/**
+ * A note event travelling from an input thread to an audio thread through a {@link NoteEventQueue}.
+ * <p>
+ * Instances are preallocated by the queue and reused: an event returned by {@link NoteEventQueue#get(int)} is
+ * only valid until the next {@link NoteEventQueue#drain(int) drain}, and must not be kept.
+ */
+public final class NoteEvent {
+
+    /**
+     * What the event asks the instrument to do.
+     */
+    public enum Type {
+        /** Start a note; {@link #key()} identifies it for the matching {@link #NOTE_OFF}. */
+        NOTE_ON,
+        /** Release the note started with the same key. */
+        NOTE_OFF,
+        /** Fire a one-shot sound such as a drum hit, identified by {@link #key()}. */
+        TRIGGER,
+        /** Silence every note at once. */
+        ALL_NOTES_OFF
+    }
+
+    Type type;
+    int key;
+    double frequency;
+    double velocity;
+    long timestamp;
+    int offset;
+
+    NoteEvent() {
+    }
+
+    void copyFrom(NoteEvent other) {
+        type = other.type;
+        key = other.key;
+        frequency = other.frequency;
+        velocity = other.velocity;
+        timestamp = other.timestamp;
+    }
+
+    /**
+     * @return What the event asks the instrument to do.
+     */
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * @return The instrument-specific identifier of the note, string or sound.
+     */
+    public int key() {
+        return key;
+    }
+
+    /**
+     * @return The frequency of the note in Hz, or 0 when the event has none.
+     */
+    public double frequency() {
+        return frequency;
+    }
+
+    /**
+     * @return The strength of the note, 1.0 being a full-strength hit.
+     */
+    public double velocity() {
+        return velocity;
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} at which the event was posted, or the frame at which to apply it on a
+     *         queue with a frame clock.
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The sample of the drained block at which the event must be applied.
+     */
+    public int offset() {
+        return offset;
+    }
+}
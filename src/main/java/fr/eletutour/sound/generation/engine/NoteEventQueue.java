@@ -0,0 +1,219 @@
+package fr.eletutour.sound.generation.engine;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, lock-free queue of timestamped note events, written by any number of input threads and read by a
+ * single audio thread.
+ * <p>
+ * Key handlers {@link #post(NoteEvent.Type, int, double, double) post} events instead of touching voices
+ * themselves, so all instrument state is owned by the audio thread and needs no locking. At the start of each
+ * block the audio thread {@link #drain(int) drains} the queue and renders the block in segments, applying every
+ * event at its {@link NoteEvent#offset() offset}.
+ * <p>
+ * The offset places an event at the same relative position in the next block as it arrived in the time since
+ * the previous drain. Every event is therefore delayed by the same amount, about one block, instead of being
+ * snapped to the next block boundary and jittering by up to a block depending on when the key was pressed. The
+ * interval is never taken longer than a block, so that the first event after the engine sat idle is not pushed
+ * to the end of the block.
+ * <p>
+ * The ring follows the bounded queue design of Dmitry Vyukov: each slot carries a sequence number telling
+ * producers whether it is free and the consumer whether it has been published, so producers only contend on a
+ * single compare-and-set and the consumer never writes a shared counter. When the queue is full, new events are
+ * dropped and counted rather than blocking the poster.
+ * <p>
+ * Offline, wall time means nothing: a queue built with a frame clock, such as the
+ * {@link OfflineRenderer#frameClock() one of an offline renderer}, timestamps events with the frame at which the
+ * next block starts, or with the frame given to {@link #post(NoteEvent.Type, int, double, double, long)}, and
+ * applies each event at exactly that frame. Renderings are then sample-accurate and identical from run to run.
+ */
+public final class NoteEventQueue {
+
+    private final int mask;
+    private final NoteEvent[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final LongSupplier frameClock;
+    private volatile Runnable postListener;
+
+    // Audio thread state
+    private long head = 0;
+    private long lastDrainTime;
+    private final NoteEvent[] block;
+    private int blockCount = 0;
+
+    /**
+     * Builds a queue for real-time input, timestamped with {@link System#nanoTime()}.
+     *
+     * @param capacity The maximum number of pending events, which must be a power of 2.
+     */
+    public NoteEventQueue(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * @param capacity   The maximum number of pending events, which must be a power of 2.
+     * @param frameClock Supplies the frame at which the next block to be drained starts, to timestamp events in
+     *                   frames, or null to timestamp them in wall time.
+     */
+    public NoteEventQueue(int capacity, LongSupplier frameClock) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of 2, got " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.slots = new NoteEvent[capacity];
+        this.block = new NoteEvent[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new NoteEvent();
+            block[i] = new NoteEvent();
+            sequences.set(i, i);
+        }
+        this.frameClock = frameClock;
+        this.lastDrainTime = System.nanoTime();
+    }
+
+    /**
+     * Posts an event, timestamped now. May be called from any thread; never blocks.
+     *
+     * @param type      What the event asks the instrument to do.
+     * @param key       The instrument-specific identifier of the note, string or sound.
+     * @param frequency The frequency of the note in Hz, or 0 when it has none.
+     * @param velocity  The strength of the note, 1.0 being a full-strength hit.
+     * @return false if the queue was full and the event was dropped.
+     */
+    public boolean post(NoteEvent.Type type, int key, double frequency, double velocity) {
+        return publish(type, key, frequency, velocity, frameClock == null ? System.nanoTime() : frameClock.getAsLong());
+    }
+
+    /**
+     * Posts an event to be applied at a given frame, on a queue with a frame clock.
+     *
+     * @param type      What the event asks the instrument to do.
+     * @param key       The instrument-specific identifier of the note, string or sound.
+     * @param frequency The frequency of the note in Hz, or 0 when it has none.
+     * @param velocity  The strength of the note, 1.0 being a full-strength hit.
+     * @param frame     The frame at which to apply the event, within the next block to be drained: earlier frames
+     *                  are applied at its start and later ones at its end.
+     * @return false if the queue was full and the event was dropped.
+     * @throws IllegalStateException If the queue timestamps events in wall time.
+     */
+    public boolean post(NoteEvent.Type type, int key, double frequency, double velocity, long frame) {
+        if (frameClock == null) throw new IllegalStateException("The queue has no frame clock");
+        return publish(type, key, frequency, velocity, frame);
+    }
+
+    private boolean publish(NoteEvent.Type type, int key, double frequency, double velocity, long timestamp) {
+        long position;
+        while (true) {
+            position = tail.get();
+            long available = sequences.get((int) position & mask) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+            } else if (available < 0) {
+                // The consumer has not freed this slot yet
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Otherwise another producer claimed the slot first: try the next one
+        }
+        int index = (int) position & mask;
+        NoteEvent slot = slots[index];
+        slot.type = type;
+        slot.key = key;
+        slot.frequency = frequency;
+        slot.velocity = velocity;
+        slot.timestamp = timestamp;
+        // Publishes the fields written above to the consumer
+        sequences.set(index, position + 1);
+
+        Runnable listener = postListener;
+        if (listener != null) listener.run();
+        return true;
+    }
+
+    /**
+     * Sets an action run on the posting thread after each event posted, typically {@link AudioEngine#wake()} so
+     * that an idle engine resumes as soon as there is a note to play.
+     *
+     * @param postListener The action, which must be cheap and never block, or null for none.
+     */
+    public void setPostListener(Runnable postListener) {
+        this.postListener = postListener;
+    }
+
+    /**
+     * Moves the pending events into the current block, in time order, and computes their offsets. Called by the
+     * audio thread at the start of each block; the events are then read with {@link #get(int)}.
+     *
+     * @param blockLength The number of samples in the block about to be rendered.
+     * @return The number of events to apply in this block.
+     */
+    public int drain(int blockLength) {
+        long now = System.nanoTime();
+        blockCount = 0;
+        while (true) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) break;
+            NoteEvent event = block[blockCount++];
+            event.copyFrom(slots[index]);
+            // Hands the slot back to the producers, one lap later
+            sequences.set(index, head + slots.length);
+            head++;
+        }
+
+        // Producers may publish slightly out of order: an insertion sort is cheap on almost sorted input
+        for (int i = 1; i < blockCount; i++) {
+            NoteEvent event = block[i];
+            int j = i - 1;
+            while (j >= 0 && block[j].timestamp > event.timestamp) {
+                block[j + 1] = block[j];
+                j--;
+            }
+            block[j + 1] = event;
+        }
+
+        if (frameClock != null) {
+            long blockStart = frameClock.getAsLong();
+            for (int i = 0; i < blockCount; i++) {
+                NoteEvent event = block[i];
+                event.offset = (int) Math.max(0, Math.min(blockLength - 1, event.timestamp - blockStart));
+            }
+            return blockCount;
+        }
+
+        // After the engine has been idle, the previous drain is long past: events are spread over one block's worth
+        // of time before now, and anything posted earlier is applied at the start of the block
+        long blockNanos = (long) (blockLength * 1e9 / AudioConstants.SAMPLE_RATE);
+        lastDrainTime = Math.max(lastDrainTime, now - blockNanos);
+        double samplesPerNano = (double) blockLength / Math.max(1, now - lastDrainTime);
+        for (int i = 0; i < blockCount; i++) {
+            NoteEvent event = block[i];
+            long offset = (long) ((event.timestamp - lastDrainTime) * samplesPerNano);
+            event.offset = (int) Math.max(0, Math.min(blockLength - 1, offset));
+        }
+        lastDrainTime = now;
+        return blockCount;
+    }
+
+    /**
+     * @param index The index of the event, from 0 to the count returned by the last {@link #drain(int)}.
+     * @return The event, valid until the next drain.
+     */
+    public NoteEvent get(int index) {
+        if (index >= blockCount) throw new IndexOutOfBoundsException(index);
+        return block[index];
+    }
+
+    /**
+     * @return The number of events dropped so far because the queue was full.
+     */
+    public long getDroppedEvents() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,37 @@
+package fr.eletutour.sound.generation.engine;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Discards audio, keeping only a virtual clock: the frame position advances as soon as data is written, so a
+ * renderer writing here runs as fast as the CPU allows. Used to measure rendering speed as a multiple of real
+ * time, and to run the instruments where there is no sound device.
+ */
+public final class NullSink implements AudioSink {
+
+    private int frameSize = 1;
+    private long bytesWritten = 0;
+
+    @Override
+    public void open(AudioFormat format) {
+        this.frameSize = format.getFrameSize();
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+        bytesWritten += length;
+    }
+
+    @Override
+    public long getFramePosition() {
+        return bytesWritten / frameSize;
+    }
+
+    @Override
+    public void drain() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
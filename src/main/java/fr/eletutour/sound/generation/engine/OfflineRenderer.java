@@ -0,0 +1,120 @@
+package fr.eletutour.sound.generation.engine;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Renders {@link AudioSource sources} into an {@link AudioSink} on the calling thread, as fast as the sink
+ * accepts data, instead of in real time on the {@link AudioEngine}.
+ * <p>
+ * With a {@link NullSink} or a {@link WavFileSink}, time is the virtual clock of the sink and nothing waits for a
+ * device, so the wall time spent gives the speed of the instruments as a multiple of real time. Input is played
+ * by a {@link Script}, called before each block with the frame position of the sink. Its events go to
+ * {@link NoteEventQueue queues} built with the {@link #frameClock() frame clock} of the renderer: they are
+ * timestamped in frames of the sink rather than in wall time, so an event posted for a given frame is applied at
+ * that very sample, and an event posted without a frame at the start of the block. Every event of a script thus
+ * lands on the same sample from one rendering to the next, however long the script or the previous block took.
+ */
+public final class OfflineRenderer {
+
+    /**
+     * Plays input into the sources while they render.
+     */
+    @FunctionalInterface
+    public interface Script {
+
+        /**
+         * Called before each block.
+         *
+         * @param frame  The frame position of the sink at the start of the block.
+         * @param length The number of frames in the block.
+         */
+        void beforeBlock(long frame, int length);
+    }
+
+    /**
+     * The outcome of a rendering.
+     *
+     * @param frames     The number of frames rendered.
+     * @param nanos      The wall time spent, in nanoseconds.
+     * @param sampleRate The sample rate of the frames.
+     */
+    public record Statistics(long frames, long nanos, float sampleRate) {
+
+        /**
+         * @return The duration of the audio rendered divided by the time spent rendering it.
+         */
+        public double realTimeFactor() {
+            return frames / (double) sampleRate * 1e9 / Math.max(1, nanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f s in %.0f ms, %.1fx real time",
+                    frames / (double) sampleRate, nanos / 1e6, realTimeFactor());
+        }
+    }
+
+    private final AudioSink sink;
+    private AudioSource[] sources = new AudioSource[0];
+    // The frame position of the sink at the start of the block being rendered
+    private long frame = 0;
+
+    /**
+     * @param sink The output, opened by {@link #render(long, Script)} in {@link AudioEngine#FORMAT}.
+     */
+    public OfflineRenderer(AudioSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @return The clock to build the {@link NoteEventQueue queues} of the sources with: the frame position of the
+     *         sink at the start of the block being rendered.
+     */
+    public LongSupplier frameClock() {
+        return () -> frame;
+    }
+
+    /**
+     * @param source A source to mix.
+     * @return This renderer.
+     */
+    public OfflineRenderer add(AudioSource source) {
+        sources = Arrays.copyOf(sources, sources.length + 1);
+        sources[sources.length - 1] = source;
+        return this;
+    }
+
+    /**
+     * Opens the sink, renders the sources into it block by block, then drains and closes it.
+     *
+     * @param frames The number of frames to render.
+     * @param script The input to play, called before each block.
+     * @return How long rendering took.
+     * @throws IOException If the sink failed.
+     */
+    public Statistics render(long frames, Script script) throws IOException {
+        double[] mix = new double[AudioEngine.BLOCK_SIZE];
+        byte[] buffer = new byte[AudioEngine.BLOCK_SIZE * 2];
+        int frameSize = AudioEngine.FORMAT.getFrameSize();
+
+        try (sink) {
+            sink.open(AudioEngine.FORMAT);
+            long start = System.nanoTime();
+            long rendered = 0;
+            while (rendered < frames) {
+                int length = (int) Math.min(AudioEngine.BLOCK_SIZE, frames - rendered);
+                frame = sink.getFramePosition();
+                script.beforeBlock(frame, length);
+                AudioEngine.mix(sources, mix, length);
+                // A short last block leaves stale samples past its length, which are not written
+                AudioEngine.toPcm(mix, buffer);
+                sink.write(buffer, 0, length * frameSize);
+                rendered += length;
+            }
+            sink.drain();
+            return new Statistics(rendered, System.nanoTime() - start, AudioEngine.FORMAT.getSampleRate());
+        }
+    }
+}
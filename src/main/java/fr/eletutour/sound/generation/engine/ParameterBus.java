@@ -0,0 +1,41 @@
+package fr.eletutour.sound.generation.engine;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands immutable parameter snapshots from the user interface to an audio thread.
+ * <p>
+ * UI listeners {@link #publish(Object) publish} a complete new snapshot whenever a control changes; the audio
+ * thread {@link #read() reads} the latest one once per block. Both sides are wait-free: the audio thread never
+ * touches Swing models nor waits for the event dispatch thread, and it always sees a consistent set of values
+ * rather than a mix of old and new fields.
+ *
+ * @param <T> The snapshot type, which must be immutable (typically a record).
+ */
+public final class ParameterBus<T> {
+
+    private final AtomicReference<T> current;
+
+    /**
+     * @param initial The snapshot returned until the first publication.
+     */
+    public ParameterBus(T initial) {
+        this.current = new AtomicReference<>(initial);
+    }
+
+    /**
+     * Replaces the current snapshot. May be called from any thread.
+     *
+     * @param snapshot The new snapshot.
+     */
+    public void publish(T snapshot) {
+        current.set(snapshot);
+    }
+
+    /**
+     * @return The latest published snapshot.
+     */
+    public T read() {
+        return current.get();
+    }
+}
@@ -0,0 +1,89 @@
+package fr.eletutour.sound.generation.engine;
+
+/**
+ * A single continuous parameter set from the user interface and followed smoothly by an audio thread.
+ * <p>
+ * The UI thread writes the target into a volatile field; the audio thread picks it up once per block with
+ * {@link #beginBlock()} and then moves towards it with a linear ramp, one step per {@link #next()} call.
+ * Stepping a gain or a drive level abruptly at block boundaries produces audible "zipper" noise; the ramp
+ * removes it for the cost of an addition per sample.
+ * <p>
+ * {@link #set(double)} may be called from any thread; every other method belongs to the audio thread.
+ */
+public final class SmoothedParameter {
+
+    private final int rampSamples;
+    private volatile double target;
+
+    // Audio thread state
+    private double value;
+    private double rampTarget;
+    private double step;
+    private int remaining = 0;
+
+    /**
+     * @param initial     The initial value, reached immediately.
+     * @param rampSamples The number of samples taken to reach a new target.
+     */
+    public SmoothedParameter(double initial, int rampSamples) {
+        if (rampSamples < 1) throw new IllegalArgumentException("The ramp must last at least one sample");
+        this.rampSamples = rampSamples;
+        this.target = initial;
+        this.value = initial;
+        this.rampTarget = initial;
+    }
+
+    /**
+     * Sets the value to move to.
+     *
+     * @param target The new target value.
+     */
+    public void set(double target) {
+        this.target = target;
+    }
+
+    /**
+     * @return The latest target set, as seen by the UI.
+     */
+    public double getTarget() {
+        return target;
+    }
+
+    /**
+     * Reads the target once for the coming block and starts a new ramp if it has changed.
+     */
+    public void beginBlock() {
+        double newTarget = target;
+        if (newTarget != rampTarget) {
+            rampTarget = newTarget;
+            step = (newTarget - value) / rampSamples;
+            remaining = rampSamples;
+        }
+    }
+
+    /**
+     * @return The value for the current sample, then advances the ramp by one sample.
+     */
+    public double next() {
+        double current = value;
+        if (remaining > 0) {
+            // The last step lands exactly on the target, without accumulated rounding
+            value = --remaining == 0 ? rampTarget : value + step;
+        }
+        return current;
+    }
+
+    /**
+     * @return true while the value is still moving towards its target.
+     */
+    public boolean isRamping() {
+        return remaining > 0;
+    }
+
+    /**
+     * @return The current value, without advancing the ramp.
+     */
+    public double current() {
+        return value;
+    }
+}
@@ -0,0 +1,105 @@
+package fr.eletutour.sound.generation.engine;
+
+import fr.eletutour.sound.io.WavHeader;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes audio to a 16-bit PCM WAVE file, as fast as it is rendered.
+ * <p>
+ * Unlike {@link fr.eletutour.sound.io.WavRecorder}, which drops data rather than hold up a capture thread, this
+ * sink writes synchronously and never loses anything: nothing is waiting on it in real time. Big-endian input is
+ * converted to the little-endian samples of the WAVE format on the way.
+ */
+public final class WavFileSink implements AudioSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel channel;
+    private AudioFormat format;
+    private boolean swapBytes;
+    private long dataLength = 0;
+
+    /**
+     * @param file The file to create, or to truncate if it exists.
+     */
+    public WavFileSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void open(AudioFormat format) throws IOException {
+        if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED || format.getSampleSizeInBits() != 16) {
+            throw new IOException("Only 16-bit signed PCM can be written, got " + format);
+        }
+        this.format = format;
+        this.swapBytes = format.isBigEndian();
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        // The header is written in place, before the data and again once its size is known
+        writeHeader();
+        channel.position(WavHeader.PCM_HEADER_SIZE);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        for (int i = offset, end = offset + length; i < end; i += 2) {
+            if (buffer.remaining() < 2) flush();
+            if (swapBytes) {
+                buffer.put(data[i + 1]).put(data[i]);
+            } else {
+                buffer.put(data[i]).put(data[i + 1]);
+            }
+        }
+        dataLength += length;
+    }
+
+    @Override
+    public long getFramePosition() {
+        return format == null ? 0 : dataLength / format.getFrameSize();
+    }
+
+    @Override
+    public void drain() throws IOException {
+        flush();
+    }
+
+    /**
+     * Writes the pending data and patches the header sizes.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        try {
+            flush();
+            writeHeader();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = WavHeader.pcmHeader((int) format.getSampleRate(), format.getChannels(),
+                format.getSampleSizeInBits(), dataLength);
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+}
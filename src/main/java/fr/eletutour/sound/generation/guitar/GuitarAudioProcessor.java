@@ -1,51 +1,110 @@
 package fr.eletutour.sound.generation.guitar;
 
-import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.engine.AudioSource;
+import fr.eletutour.sound.generation.engine.NoteEvent;
+import fr.eletutour.sound.generation.engine.NoteEventQueue;
+import fr.eletutour.sound.generation.engine.SmoothedParameter;
+import fr.eletutour.sound.generation.engine.Waveshaper;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.SourceDataLine;
-import java.util.Map;
+import java.util.Arrays;
 
-public record GuitarAudioProcessor(VirtualGuitar virtualGuitar,
-                                   Map<Integer, GuitarString> activeStrings) implements Runnable {
+/**
+ * The sound of the guitar: six strings plucked through a {@link NoteEventQueue}, mixed and distorted block by
+ * block on the render thread of the {@link AudioEngine}. Needs no window, so it can also be rendered offline.
+ */
+public final class GuitarAudioProcessor implements AudioSource {
 
+    static final int NUM_STRINGS = 6;
+    // Below this amplitude a ringing string may be excited again by sympathetic resonance
+    private static final double RINGING_THRESHOLD = 0.1;
+    // Soft clipping curve for the distortion, shared by every block
+    private static final Waveshaper SOFT_CLIPPER = Waveshaper.tanh();
+
+    private final NoteEventQueue noteEvents;
+    private final SmoothedParameter distortion;
+    // Only touched by the render thread: plucks arrive through the event queue, plucked again in place for every note
+    final GuitarString[] strings = new GuitarString[NUM_STRINGS];
+    private final double[] stringMix = new double[AudioEngine.BLOCK_SIZE];
+
+    /**
+     * @param noteEvents The plucks, keyed by string index.
+     * @param distortion The distortion level, from 0 to 1.
+     */
+    public GuitarAudioProcessor(NoteEventQueue noteEvents, SmoothedParameter distortion) {
+        this.noteEvents = noteEvents;
+        this.distortion = distortion;
+        for (int i = 0; i < NUM_STRINGS; i++) {
+            strings[i] = new GuitarString();
+        }
+    }
+
+    /**
+     * Adds the ringing strings to a block, plucking strings at the offset of each pending event. Each string
+     * renders its segments into a buffer of its own, then the distortion runs in a single pass over the block.
+     */
     @Override
-    public void run() {
-        try (SourceDataLine line = AudioSystem.getSourceDataLine(new AudioFormat(AudioConstants.SAMPLE_RATE, 16, 1, true, true))) {
-            line.open();
-            line.start();
-            byte[] buffer = new byte[1024];
-
-            while (true) {
-                for (int i = 0; i < buffer.length / 2; i++) {
-                    double mixedSample = 0;
-
-                    for (Map.Entry<Integer, GuitarString> entry : activeStrings.entrySet()) {
-                        GuitarString string = entry.getValue();
-                        mixedSample += string.getNextSample();
-                        if (!string.isActive()) {
-                            activeStrings.remove(entry.getKey());
-                        }
-                    }
-
-                    // Apply distortion
-                    if (virtualGuitar.getDistortionLevel() > 0.0f) {
-                        // Simple soft clipping using tanh
-                        // The 'gain' factor amplifies the signal before tanh, increasing distortion
-                        double gain = 1.0 + (virtualGuitar.getDistortionLevel() * 5.0); // Adjust gain for desired distortion intensity
-                        mixedSample = Math.tanh(mixedSample * gain) / Math.tanh(gain);
-                    }
-
-                    mixedSample = Math.max(-1.0, Math.min(1.0, mixedSample * 0.5)); // Reduce volume to prevent clipping
-                    short pcmValue = (short) (mixedSample * Short.MAX_VALUE);
-                    buffer[i * 2] = (byte) (pcmValue >> 8);
-                    buffer[i * 2 + 1] = (byte) pcmValue;
+    public boolean render(double[] mix, int length) {
+        Arrays.fill(stringMix, 0, length, 0.0);
+        int events = noteEvents.drain(length);
+        int position = 0;
+        for (int e = 0; e < events; e++) {
+            NoteEvent event = noteEvents.get(e);
+            render(strings, stringMix, position, event.offset());
+            position = event.offset();
+            apply(strings, event);
+        }
+        render(strings, stringMix, position, length);
+
+        distortion.beginBlock();
+        double shapedLevel = -1.0, gain = 1.0, normalization = 1.0;
+        for (int i = 0; i < length; i++) {
+            double mixedSample = stringMix[i];
+
+            // Apply distortion, ramped smoothly when the level changes
+            double distortionLevel = distortion.next();
+            if (distortionLevel > 0.0) {
+                if (distortionLevel != shapedLevel) {
+                    // The 'gain' factor amplifies the signal before tanh, increasing distortion
+                    gain = 1.0 + (distortionLevel * 5.0); // Adjust gain for desired distortion intensity
+                    normalization = 1.0 / SOFT_CLIPPER.shape(gain);
+                    shapedLevel = distortionLevel;
+                }
+                // Simple soft clipping using tanh
+                mixedSample = SOFT_CLIPPER.shape(mixedSample * gain) * normalization;
+            }
+
+            mix[i] += mixedSample * 0.5; // Reduce volume to prevent clipping
+        }
+
+        for (GuitarString string : strings) {
+            if (string.isActive()) return true;
+        }
+        return false;
+    }
+
+    private static void render(GuitarString[] strings, double[] mix, int from, int to) {
+        for (GuitarString string : strings) {
+            // A silent string costs nothing
+            if (string.isActive()) string.render(mix, from, to);
+        }
+    }
+
+    private static void apply(GuitarString[] strings, NoteEvent event) {
+        switch (event.type()) {
+            case NOTE_ON -> {
+                // A full pluck always restarts the string; a lighter excitation (sympathetic resonance) only
+                // restarts a string that has almost stopped ringing
+                GuitarString string = strings[event.key()];
+                if (event.velocity() >= 1.0 || string.getVibrationAmplitude() < RINGING_THRESHOLD) {
+                    string.pluck(event.frequency(), event.velocity());
                 }
-                line.write(buffer, 0, buffer.length);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            case NOTE_OFF -> strings[event.key()].mute();
+            case ALL_NOTES_OFF -> {
+                for (GuitarString string : strings) string.mute();
+            }
+            default -> { }
         }
     }
 }
@@ -1,6 +1,8 @@
 package fr.eletutour.sound.generation.guitar;
 
 import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.NoteEvent;
+import fr.eletutour.sound.generation.engine.NoteEventQueue;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
@@ -10,7 +12,7 @@ public class GuitarKeyBindings {
 
     private final VirtualGuitar virtualGuitar;
     private final GuitarPanel guitarPanel;
-    private final Map<Integer, GuitarString> activeStrings;
+    private final NoteEventQueue noteEvents;
 
     // Chord definitions: { {stringIndex, fretNumber}, ... }
     // Fret number -1 means muted string
@@ -51,10 +53,10 @@ public class GuitarKeyBindings {
 
     private final String[] tuningNames;
 
-    public GuitarKeyBindings(VirtualGuitar virtualGuitar, GuitarPanel guitarPanel, Map<Integer, GuitarString> activeStrings) {
+    public GuitarKeyBindings(VirtualGuitar virtualGuitar, GuitarPanel guitarPanel, NoteEventQueue noteEvents) {
         this.virtualGuitar = virtualGuitar;
         this.guitarPanel = guitarPanel;
-        this.activeStrings = activeStrings;
+        this.noteEvents = noteEvents;
         this.tuningNames = tuningPresets.keySet().toArray(new String[0]);
     }
 
@@ -118,7 +120,7 @@ public class GuitarKeyBindings {
                 virtualGuitar.setCurrentTuningIndex((virtualGuitar.getCurrentTuningIndex() + 1) % tuningNames.length);
                 virtualGuitar.setCurrentStringFrequencies(tuningPresets.get(tuningNames[virtualGuitar.getCurrentTuningIndex()]));
                 // Optionally, clear active strings to prevent old frequencies from lingering
-                activeStrings.clear();
+                noteEvents.post(NoteEvent.Type.ALL_NOTES_OFF, 0, 0.0, 0.0);
                 System.out.println("Tuning changed to: " + tuningNames[virtualGuitar.getCurrentTuningIndex()]);
             }
         });
@@ -143,7 +145,7 @@ public class GuitarKeyBindings {
         });
     }
 
-    private static final int NUM_STRINGS = 6;
+    private static final int NUM_STRINGS = GuitarAudioProcessor.NUM_STRINGS;
 
     private class StringAction extends AbstractAction {
         private final int stringIndex;
@@ -159,7 +161,7 @@ public class GuitarKeyBindings {
             double adjustedFrequency = originalFrequency * Math.pow(2, virtualGuitar.getCapoFret() / 12.0);
 
             // Pluck the main string with full amplitude
-            activeStrings.put(stringIndex, new GuitarString(adjustedFrequency));
+            noteEvents.post(NoteEvent.Type.NOTE_ON, stringIndex, adjustedFrequency, 1.0);
             guitarPanel.pluckString(stringIndex);
 
             // Trigger sympathetic resonance in other strings
@@ -168,10 +170,8 @@ public class GuitarKeyBindings {
                     double sympatheticOriginalFrequency = virtualGuitar.getCurrentStringFrequencies()[i];
                     double sympatheticAdjustedFrequency = sympatheticOriginalFrequency * Math.pow(2, virtualGuitar.getCapoFret() / 12.0);
 
-                    // Only replace if the string is not already ringing loudly
-                    if (!activeStrings.containsKey(i) || activeStrings.get(i).getVibrationAmplitude() < 0.1) {
-                        activeStrings.put(i, new GuitarString(sympatheticAdjustedFrequency, SYMPATHETIC_RESONANCE_FACTOR));
-                    }
+                    // The audio thread only replaces the string if it is not already ringing loudly
+                    noteEvents.post(NoteEvent.Type.NOTE_ON, i, sympatheticAdjustedFrequency, SYMPATHETIC_RESONANCE_FACTOR);
                 }
             }
         }
@@ -196,7 +196,7 @@ public class GuitarKeyBindings {
                     // Adjust frequency based on fret number and capo
                     double adjustedFrequency = originalFrequency * Math.pow(2, (fretNumber + virtualGuitar.getCapoFret()) / 12.0);
 
-                    activeStrings.put(stringIndex, new GuitarString(adjustedFrequency));
+                    noteEvents.post(NoteEvent.Type.NOTE_ON, stringIndex, adjustedFrequency, 1.0);
                     guitarPanel.pluckString(stringIndex);
                 }
             }
@@ -212,12 +212,10 @@ public class GuitarKeyBindings {
                 }
 
                 if (!isPlayedInChord) {
-                    // Only replace if the string is not already ringing loudly
-                    if (!activeStrings.containsKey(i) || activeStrings.get(i).getVibrationAmplitude() < 0.1) {
-                        double sympatheticOriginalFrequency = virtualGuitar.getCurrentStringFrequencies()[i];
-                        double sympatheticAdjustedFrequency = sympatheticOriginalFrequency * Math.pow(2, virtualGuitar.getCapoFret() / 12.0); // Sympathetic strings are affected by capo only
-                        activeStrings.put(i, new GuitarString(sympatheticAdjustedFrequency, SYMPATHETIC_RESONANCE_FACTOR));
-                    }
+                    // The audio thread only replaces the string if it is not already ringing loudly
+                    double sympatheticOriginalFrequency = virtualGuitar.getCurrentStringFrequencies()[i];
+                    double sympatheticAdjustedFrequency = sympatheticOriginalFrequency * Math.pow(2, virtualGuitar.getCapoFret() / 12.0); // Sympathetic strings are affected by capo only
+                    noteEvents.post(NoteEvent.Type.NOTE_ON, i, sympatheticAdjustedFrequency, SYMPATHETIC_RESONANCE_FACTOR);
                 }
             }
         }
@@ -2,48 +2,153 @@ package fr.eletutour.sound.generation.guitar;
 
 import fr.eletutour.sound.constant.AudioConstants;
 
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * A plucked string, synthesised with the Karplus-Strong algorithm: a burst of noise circulating in a delay line
+ * through a low-pass damping filter.
+ * <p>
+ * The pitch is set by the total delay around the loop, which must be a whole period {@code fs / f}. An integer
+ * delay line alone can only approximate it, badly at high frets, so the loop also goes through a first-order
+ * allpass filter that supplies the fractional part of the delay, and the delay of the damping filter itself at the
+ * fundamental is taken into account. The string is then tuned to well within a cent.
+ * <p>
+ * The delay line is a primitive ring buffer and the decay envelope a recursive multiplier, so producing a sample
+ * allocates nothing and calls no transcendental function.
+ * <p>
+ * A string is a long-lived object, {@link #pluck(double, double) plucked} again in place for each note: its delay
+ * line is sized for the lowest playable note and refilled from a noise table drawn once for all strings, so
+ * strumming and tremolo picking allocate nothing either. Used by the audio thread only.
+ */
 public class GuitarString {
 
-    private final Queue<Double> ringBuffer;
-    private int tickCount = 0;
-    private double envelope = 1.0;
-    private double lastFilterOutput = 0.0; // For the improved filter
+    /** The damping of the original model: each sample is averaged with the previous filter output. */
+    public static final double DEFAULT_DAMPING = 0.5;
+    /** The lowest frequency a string can be plucked at, which sets the size of its delay line. */
+    public static final double MIN_FREQUENCY = 40.0;
 
-    public GuitarString(double frequency, double initialAmplitude) {
-        int capacity = (int) (AudioConstants.SAMPLE_RATE / frequency);
-        this.ringBuffer = new LinkedList<>();
+    // The fractional delay is kept in [0.1, 1.1) samples, where the allpass coefficient stays well below 1
+    private static final double MIN_FRACTIONAL_DELAY = 0.1;
+    // Output envelope: exp(-t / 0.4 s), similar to the visual decay time constant
+    private static final double ENVELOPE_DECAY = Math.exp(-1.0 / (AudioConstants.SAMPLE_RATE * 0.4));
+
+    // Noise for the plucks, shared by all strings: each pluck copies the next slice of it
+    private static final int NOISE_LENGTH = 1 << 16;
+    private static final double[] NOISE = new double[NOISE_LENGTH];
+    static {
         Random random = new Random();
+        for (int i = 0; i < NOISE_LENGTH; i++) {
+            NOISE[i] = random.nextDouble() - 0.5;
+        }
+    }
+
+    private final double[] ringBuffer = new double[(int) Math.ceil(AudioConstants.SAMPLE_RATE / MIN_FREQUENCY)];
+    private int delayLength = 1;
+    private int position = 0;
+    private int noisePosition;
+
+    private final double damping;
+    private double lastFilterOutput = 0.0;
 
-        for (int i = 0; i < capacity; i++) {
-            ringBuffer.add((random.nextDouble() - 0.5) * initialAmplitude);
+    private double allpassCoefficient = 0.0;
+    private double allpassInput = 0.0, allpassOutput = 0.0;
+
+    // Silent until plucked
+    private double envelope = 0.0;
+
+    /**
+     * @param damping The damping filter coefficient, from 0 (no damping, bright) to just below 1 (dull).
+     */
+    public GuitarString(double damping) {
+        if (damping < 0.0 || damping >= 1.0) {
+            throw new IllegalArgumentException("The damping must be in [0, 1), got " + damping);
         }
+        this.damping = damping;
+        // Strings start at different places in the noise table so that a chord does not play the same burst six times
+        this.noisePosition = ThreadLocalRandom.current().nextInt(NOISE_LENGTH);
     }
 
-    public GuitarString(double frequency) {
-        this(frequency, 1.0); // Default constructor with full amplitude
+    public GuitarString() {
+        this(DEFAULT_DAMPING);
     }
 
-    public double getNextSample() {
-        if (ringBuffer.isEmpty()) {
-            return 0.0;
+    /**
+     * Excites the string again, whatever it was doing.
+     *
+     * @param frequency        The fundamental frequency in Hz, at least {@link #MIN_FREQUENCY}.
+     * @param initialAmplitude The amplitude of the noise burst, 1.0 for a full pluck.
+     */
+    public void pluck(double frequency, double initialAmplitude) {
+        if (frequency < MIN_FREQUENCY) {
+            throw new IllegalArgumentException("Cannot pluck a string below " + MIN_FREQUENCY + " Hz, got " + frequency);
         }
 
-        double first = ringBuffer.poll();
+        // Phase delay of the one-pole damping filter y = (1 - a) x + a y[n-1] at the fundamental
+        double w = 2 * Math.PI * frequency / AudioConstants.SAMPLE_RATE;
+        double filterDelay = Math.atan2(damping * Math.sin(w), 1.0 - damping * Math.cos(w)) / w;
 
-        // A simple IIR low-pass filter for a warmer tone
-        double newSample = (first + lastFilterOutput) * 0.5;
-        lastFilterOutput = newSample;
-        ringBuffer.add(newSample);
+        double loopDelay = AudioConstants.SAMPLE_RATE / frequency - filterDelay;
+        int delayLength = (int) Math.floor(loopDelay - MIN_FRACTIONAL_DELAY);
+        double fractionalDelay = loopDelay - delayLength;
+        // A first-order allpass (C + z^-1) / (1 + C z^-1) delays low frequencies by (1 - C) / (1 + C) samples
+        this.allpassCoefficient = (1.0 - fractionalDelay) / (1.0 + fractionalDelay);
 
-        // Apply a smooth exponential decay envelope, similar to the visual decay time constant
-        envelope = Math.exp(-tickCount / (AudioConstants.SAMPLE_RATE * 0.4));
+        this.delayLength = delayLength;
+        for (int i = 0; i < delayLength; i++) {
+            ringBuffer[i] = NOISE[(noisePosition + i) & (NOISE_LENGTH - 1)] * initialAmplitude;
+        }
+        noisePosition = (noisePosition + delayLength) & (NOISE_LENGTH - 1);
+        position = 0;
+        lastFilterOutput = 0.0;
+        allpassInput = 0.0;
+        allpassOutput = 0.0;
+        envelope = 1.0;
+    }
+
+    /**
+     * Stops the string at once.
+     */
+    public void mute() {
+        envelope = 0.0;
+    }
+
+    /**
+     * Adds the string to {@code mix} from {@code from} inclusive to {@code to} exclusive. The loop state is held in
+     * locals for the whole segment.
+     */
+    public void render(double[] mix, int from, int to) {
+        double[] ring = ringBuffer;
+        int position = this.position;
+        int delayLength = this.delayLength;
+        double feedback = damping, input = 1.0 - damping;
+        double lastFilterOutput = this.lastFilterOutput;
+        double allpassCoefficient = this.allpassCoefficient;
+        double allpassInput = this.allpassInput, allpassOutput = this.allpassOutput;
+        double envelope = this.envelope;
+
+        for (int i = from; i < to; i++) {
+            // A simple IIR low-pass filter for a warmer tone
+            double filtered = input * ring[position] + feedback * lastFilterOutput;
+            lastFilterOutput = filtered;
+
+            // Fractional part of the period
+            double newSample = allpassCoefficient * (filtered - allpassOutput) + allpassInput;
+            allpassInput = filtered;
+            allpassOutput = newSample;
+
+            ring[position] = newSample;
+            if (++position == delayLength) position = 0;
+
+            mix[i] += newSample * envelope;
+            envelope *= ENVELOPE_DECAY;
+        }
 
-        tickCount++;
-        return newSample * envelope;
+        this.position = position;
+        this.lastFilterOutput = lastFilterOutput;
+        this.allpassInput = allpassInput;
+        this.allpassOutput = allpassOutput;
+        this.envelope = envelope;
     }
 
     public boolean isActive() {
@@ -1,10 +1,11 @@
 package fr.eletutour.sound.generation.guitar;
 
 import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.engine.NoteEventQueue;
+import fr.eletutour.sound.generation.engine.SmoothedParameter;
 
 import javax.swing.*;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class VirtualGuitar extends JFrame {
 
@@ -21,24 +22,28 @@ public class VirtualGuitar extends JFrame {
     };
 
     private int currentTuningIndex = 0; // Index for tuningNames
-    private float distortionLevel = 0.0f; // 0.0 to 1.0
+    // 0.0 to 1.0, set from the key bindings and followed by the audio thread with a 10 ms ramp
+    private final SmoothedParameter distortion = new SmoothedParameter(0.0, (int) (AudioConstants.SAMPLE_RATE * 0.01));
 
     public VirtualGuitar() {
         setTitle("Guitare Virtuelle");
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
 
         GuitarPanel guitarPanel = new GuitarPanel();
         add(guitarPanel);
 
-        Map<Integer, GuitarString> activeStrings = new ConcurrentHashMap<>();
-        GuitarKeyBindings guitarKeyBindings = new GuitarKeyBindings(this, guitarPanel, activeStrings);
+        // Plucks travel to the audio processor as events; the strings belong to the render thread alone
+        NoteEventQueue noteEvents = new NoteEventQueue(256);
+        GuitarKeyBindings guitarKeyBindings = new GuitarKeyBindings(this, guitarPanel, noteEvents);
         guitarKeyBindings.setupBindings((JPanel) getContentPane());
 
         pack();
         setLocationRelativeTo(null);
         setVisible(true);
 
-        new Thread(new GuitarAudioProcessor(this, activeStrings)).start();
+        AudioEngine engine = AudioEngine.getInstance();
+        noteEvents.setPostListener(engine::wake);
+        engine.attach(new GuitarAudioProcessor(noteEvents, distortion), this);
     }
 
     public static void main(String[] args) {
@@ -71,11 +76,15 @@ public class VirtualGuitar extends JFrame {
     }
 
     public float getDistortionLevel() {
-        return distortionLevel;
+        return (float) distortion.getTarget();
     }
 
     public void setDistortionLevel(float distortionLevel) {
-        this.distortionLevel = distortionLevel;
+        distortion.set(distortionLevel);
+    }
+
+    public SmoothedParameter getDistortion() {
+        return distortion;
     }
 }
 
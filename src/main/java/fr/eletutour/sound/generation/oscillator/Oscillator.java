@@ -0,0 +1,116 @@
+package fr.eletutour.sound.generation.oscillator;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+/**
+ * A band-limited wavetable oscillator.
+ * <p>
+ * The phase is a cycle fraction in [0, 1) that wraps on every period, so precision does not degrade over
+ * long sessions the way an ever-growing angle does. Each sample is read from the {@link WavetableBank}
+ * table matching the current frequency, with linear interpolation between two adjacent samples: a few
+ * multiplies instead of {@code Math.sin}, {@code Math.asin} or {@code Math.signum}. With 2048 samples per
+ * cycle, the interpolation error of a sine stays below -120 dB.
+ * <p>
+ * Not thread-safe: an oscillator belongs to the thread that renders it.
+ */
+public final class Oscillator {
+
+    private final double sampleRate;
+
+    private WavetableBank bank;
+    private float[] table;
+    private double frequency;
+    private double increment;
+    private double phase = 0.0;
+
+    /**
+     * @param waveform   The initial waveform.
+     * @param sampleRate The sample rate of the rendered signal, in Hz.
+     */
+    public Oscillator(AudioConstants.Waveform waveform, double sampleRate) {
+        this.sampleRate = sampleRate;
+        this.bank = WavetableBank.of(waveform);
+        this.table = bank.tableFor(0.0);
+    }
+
+    /**
+     * Creates an oscillator running at {@link AudioConstants#SAMPLE_RATE}.
+     *
+     * @param waveform The initial waveform.
+     */
+    public Oscillator(AudioConstants.Waveform waveform) {
+        this(waveform, AudioConstants.SAMPLE_RATE);
+    }
+
+    /**
+     * Changes the waveform without resetting the phase, so the switch does not click.
+     *
+     * @param waveform The new waveform.
+     */
+    public void setWaveform(AudioConstants.Waveform waveform) {
+        WavetableBank newBank = WavetableBank.of(waveform);
+        if (newBank != bank) {
+            bank = newBank;
+            table = bank.tableFor(increment);
+        }
+    }
+
+    /**
+     * Changes the frequency without resetting the phase.
+     *
+     * @param frequency The frequency in Hz.
+     */
+    public void setFrequency(double frequency) {
+        if (frequency == this.frequency) return;
+        this.frequency = frequency;
+        this.increment = frequency / sampleRate;
+        this.table = bank.tableFor(Math.abs(increment));
+    }
+
+    /**
+     * @return The current frequency in Hz.
+     */
+    public double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * @return The position in the current cycle, from 0 inclusive to 1 exclusive.
+     */
+    public double getPhase() {
+        return phase;
+    }
+
+    /**
+     * Moves to a position in the cycle, typically the phase of another oscillator taking over from this one.
+     *
+     * @param phase The position in the cycle, from 0 inclusive to 1 exclusive.
+     */
+    public void setPhase(double phase) {
+        this.phase = phase - Math.floor(phase);
+    }
+
+    /**
+     * Restarts the waveform at the beginning of its cycle.
+     */
+    public void resetPhase() {
+        phase = 0.0;
+    }
+
+    /**
+     * Renders the next sample and advances the phase.
+     *
+     * @return The sample, between -1 and 1.
+     */
+    public double next() {
+        double position = phase * WavetableBank.TABLE_SIZE;
+        int index = (int) position;
+        double fraction = position - index;
+        double a = table[index];
+        double sample = a + fraction * (table[index + 1] - a);
+
+        phase += increment;
+        if (phase >= 1.0 || phase < 0.0) phase -= Math.floor(phase);
+        return sample;
+    }
+}
@@ -0,0 +1,113 @@
+package fr.eletutour.sound.generation.oscillator;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Precomputed band-limited single-cycle tables for each {@link AudioConstants.Waveform}.
+ * <p>
+ * Each waveform is stored as a mipmap of one table per octave. Every table is built by additive synthesis
+ * and only holds the harmonics that stay below Nyquist for the highest frequency it serves. Square,
+ * triangle and sawtooth therefore do not alias, however high they are played. Table selection only depends
+ * on the phase increment (frequency / sample rate), so the same tables serve every sample rate. Tables are
+ * built once, when the class is loaded, and shared by all oscillators.
+ */
+public final class WavetableBank {
+
+    /**
+     * The number of samples in one cycle. Each table carries one extra guard sample equal to the first,
+     * so that interpolation never has to wrap.
+     */
+    public static final int TABLE_SIZE = 2048;
+
+    // The lowest table serves phase increments up to 1 / TABLE_SIZE (about 47 Hz at 96 kHz)
+    private static final double LOWEST_INCREMENT = 1.0 / TABLE_SIZE;
+    // One table per octave, down to the last one which only holds the fundamental
+    private static final int OCTAVES = Integer.numberOfTrailingZeros(TABLE_SIZE);
+
+    private static final Map<AudioConstants.Waveform, WavetableBank> BANKS = new EnumMap<>(AudioConstants.Waveform.class);
+
+    static {
+        double[] sine = new double[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            sine[i] = Math.sin(2 * Math.PI * i / TABLE_SIZE);
+        }
+        for (AudioConstants.Waveform waveform : AudioConstants.Waveform.values()) {
+            BANKS.put(waveform, new WavetableBank(waveform, sine));
+        }
+    }
+
+    private final float[][] tables;
+
+    private WavetableBank(AudioConstants.Waveform waveform, double[] sine) {
+        if (waveform == AudioConstants.Waveform.SINE) {
+            // A sine has no harmonics to remove: a single table serves every frequency
+            tables = new float[][]{toTable(sine)};
+            return;
+        }
+        tables = new float[OCTAVES + 1][];
+        double[] cycle = new double[TABLE_SIZE];
+        for (int octave = 0; octave <= OCTAVES; octave++) {
+            int harmonics = Math.max(1, (int) (0.5 / (LOWEST_INCREMENT * (1 << octave))) - 1);
+            Arrays.fill(cycle, 0.0);
+            for (int k = 1; k <= harmonics; k++) {
+                double amplitude = amplitude(waveform, k);
+                if (amplitude == 0.0) continue;
+                // sin(2πki/N) read from the sine table with an exact integer index
+                for (int i = 0, index = 0; i < TABLE_SIZE; i++, index = (index + k) & (TABLE_SIZE - 1)) {
+                    cycle[i] += amplitude * sine[index];
+                }
+            }
+            tables[octave] = toTable(cycle);
+        }
+    }
+
+    /**
+     * Fourier series of the naive waveforms, with the same phase and polarity:
+     * square = signum(sin), triangle = (2/π)·asin(sin) and a rising sawtooth from -1 to 1.
+     */
+    private static double amplitude(AudioConstants.Waveform waveform, int k) {
+        return switch (waveform) {
+            case SINE -> k == 1 ? 1.0 : 0.0;
+            case SQUARE -> k % 2 == 1 ? 4.0 / (Math.PI * k) : 0.0;
+            case TRIANGLE -> k % 2 == 1 ? ((k / 2) % 2 == 0 ? 1 : -1) * 8.0 / (Math.PI * Math.PI * k * k) : 0.0;
+            case SAWTOOTH -> -2.0 / (Math.PI * k);
+        };
+    }
+
+    private static float[] toTable(double[] cycle) {
+        // The Gibbs overshoot of the square and sawtooth is scaled back so that samples stay within [-1, 1]
+        double peak = 1.0;
+        for (double value : cycle) {
+            peak = Math.max(peak, Math.abs(value));
+        }
+        float[] table = new float[TABLE_SIZE + 1];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = (float) (cycle[i] / peak);
+        }
+        table[TABLE_SIZE] = table[0];
+        return table;
+    }
+
+    /**
+     * @param waveform The waveform.
+     * @return The shared tables of this waveform.
+     */
+    public static WavetableBank of(AudioConstants.Waveform waveform) {
+        return BANKS.get(waveform);
+    }
+
+    /**
+     * @param increment The phase increment per sample, i.e. frequency / sample rate.
+     * @return The table with the most harmonics that does not alias at this increment.
+     */
+    public float[] tableFor(double increment) {
+        if (tables.length == 1 || increment <= LOWEST_INCREMENT) return tables[0];
+        // Octave above the lowest increment, rounded up: floor(log2(ratio)) + 1 without a logarithm
+        int octave = Math.getExponent(increment / LOWEST_INCREMENT) + 1;
+        return tables[Math.min(octave, OCTAVES)];
+    }
+}
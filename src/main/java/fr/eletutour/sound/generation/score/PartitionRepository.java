@@ -0,0 +1,339 @@
+package fr.eletutour.sound.generation.score;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The partitions available to play, gathered from a classpath directory, inside a jar or not, and from an
+ * optional external directory whose partitions take precedence over the bundled ones of the same name.
+ * <p>
+ * Opening the repository only indexes the partitions: each file is scanned once for its event lines and their
+ * total duration, without splitting lines into strings or looking notes up, so that thousands of partitions are
+ * listed in a fraction of a second. A partition is {@link Score#parse(List) parsed} the first time it is asked
+ * for, and the score is kept until the file changes.
+ * <p>
+ * Directories on the default file system are watched: a partition created, modified or deleted there is indexed
+ * again at once and the change listeners are told, while a jar is read as it was when opened. The modification
+ * time of each entry is the one to use in a {@link RenderedScoreCache.Key}, so that an edited partition is
+ * rendered again.
+ */
+public final class PartitionRepository implements AutoCloseable {
+
+    /** The extension of partition files; other files in the directories are ignored. */
+    public static final String EXTENSION = ".txt";
+
+    /**
+     * What the index knows about a partition.
+     *
+     * @param name         The file name of the partition, which identifies it.
+     * @param noteCount    The number of event lines, notes and rests. Lines naming an unknown note are counted
+     *                     too, and only dropped when the partition is parsed.
+     * @param durationMs   The total duration of these lines, in milliseconds.
+     * @param lastModified The modification time of the file, in milliseconds since the epoch.
+     */
+    public record Entry(String name, int noteCount, long durationMs, long lastModified) {
+    }
+
+    // An indexed file, replaced as a whole when the file changes so that a stale score is never returned
+    private static final class Partition {
+        final Path path;
+        final Entry entry;
+        volatile Score score;
+
+        Partition(Path path, Entry entry) {
+            this.path = path;
+            this.entry = entry;
+        }
+    }
+
+    // A directory of partitions, by name
+    private static final class Root {
+        final Path directory;
+        final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+        Root(Path directory) {
+            this.directory = directory;
+        }
+    }
+
+    // In decreasing precedence: the external directory first
+    private final List<Root> roots = new ArrayList<>();
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    // The jar file system opened for the classpath directory, closed with the repository
+    private FileSystem jarFileSystem;
+    private WatchService watchService;
+
+    /**
+     * Indexes the partitions of both directories and starts watching those that can be.
+     *
+     * @param resourceDirectory The classpath directory of the bundled partitions, such as {@code "partitions"},
+     *                          or null for none. Ignored if absent from the classpath.
+     * @param externalDirectory The directory of additional partitions, or null for none. Ignored if it does not
+     *                          exist.
+     * @return The repository, to be closed when no longer used.
+     * @throws IOException If a directory cannot be listed.
+     */
+    public static PartitionRepository open(String resourceDirectory, Path externalDirectory) throws IOException {
+        PartitionRepository repository = new PartitionRepository();
+        try {
+            if (externalDirectory != null && Files.isDirectory(externalDirectory)) {
+                repository.addRoot(externalDirectory);
+            }
+            URL resource = resourceDirectory == null ? null
+                    : PartitionRepository.class.getClassLoader().getResource(resourceDirectory);
+            if (resource != null) {
+                repository.addRoot(repository.toPath(resource));
+            }
+            repository.startWatching();
+        } catch (IOException | RuntimeException e) {
+            repository.close();
+            throw e;
+        }
+        return repository;
+    }
+
+    /**
+     * @return A repository without any partition, for when the directories cannot be read.
+     */
+    public static PartitionRepository empty() {
+        return new PartitionRepository();
+    }
+
+    private PartitionRepository() {
+    }
+
+    // A directory URL as a path, opening the file system of the jar it is in if needed
+    private Path toPath(URL resource) throws IOException {
+        URI uri;
+        try {
+            uri = resource.toURI();
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid partition directory: " + resource, e);
+        }
+        if ("jar".equals(uri.getScheme())) {
+            try {
+                jarFileSystem = FileSystems.newFileSystem(uri, Map.of());
+            } catch (FileSystemAlreadyExistsException e) {
+                // Opened elsewhere, and left to its owner
+            }
+        }
+        return Path.of(uri);
+    }
+
+    private void addRoot(Path directory) throws IOException {
+        Root root = new Root(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            stream.forEach(files::add);
+        }
+        // Scanning is mostly waiting for the file system, so large directories are indexed in parallel
+        files.parallelStream().forEach(file -> index(root, file));
+        roots.add(root);
+    }
+
+    private void startWatching() throws IOException {
+        List<Root> watched = roots.stream()
+                .filter(root -> root.directory.getFileSystem() == FileSystems.getDefault())
+                .toList();
+        if (watched.isEmpty()) return;
+
+        watchService = FileSystems.getDefault().newWatchService();
+        Map<WatchKey, Root> keys = new ConcurrentHashMap<>();
+        for (Root root : watched) {
+            keys.put(root.directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), root);
+        }
+        Thread thread = new Thread(() -> watch(watchService, keys), "partition-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(WatchService watchService, Map<WatchKey, Root> keys) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Root root = keys.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events were lost: the whole directory is indexed again
+                        reindex(root);
+                    } else {
+                        Path file = root.directory.resolve((Path) event.context());
+                        if (file.getFileName().toString().endsWith(EXTENSION)) index(root, file);
+                    }
+                }
+                key.reset();
+                for (Runnable listener : changeListeners) {
+                    listener.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private void reindex(Root root) {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root.directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                index(root, file);
+                names.add(file.getFileName().toString());
+            }
+            // Entries are replaced in place, so that readers never see the directory empty
+            root.partitions.keySet().retainAll(names);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Indexes a file again, or forgets it once deleted
+    private static void index(Root root, Path file) {
+        String name = file.getFileName().toString();
+        try {
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            root.partitions.put(name, new Partition(file, scan(name, file, lastModified)));
+        } catch (NoSuchFileException e) {
+            root.partitions.remove(name);
+        } catch (IOException e) {
+            // Half written, typically: the next modification event indexes it again
+            root.partitions.remove(name);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Counts the {@code NOTE, duration} lines of a partition and sums their durations in a single pass over its
+     * bytes, accepting the same lines as {@link Score#parse(List)} apart from the note lookup.
+     */
+    static Entry scan(String name, Path file, long lastModified) throws IOException {
+        int noteCount = 0;
+        long durationMs = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            int commas = 0;
+            long duration = 0;
+            boolean negative = false, blank = true;
+            int b;
+            do {
+                b = in.read();
+                if (b == '\n' || b == -1) {
+                    if (commas == 1 && !blank) {
+                        noteCount++;
+                        // Negative durations count as 0, as when parsed
+                        if (!negative) durationMs += duration;
+                    }
+                    commas = 0;
+                    duration = 0;
+                    negative = false;
+                    blank = true;
+                } else if (b == ',') {
+                    commas++;
+                } else if (commas == 1 && !Character.isWhitespace(b)) {
+                    // Anything else than a number makes the parse fail anyway
+                    if (b >= '0' && b <= '9') duration = duration * 10 + (b - '0');
+                    else if (b == '-') negative = true;
+                    blank = false;
+                }
+            } while (b != -1);
+        }
+        return new Entry(name, noteCount, durationMs, lastModified);
+    }
+
+    /**
+     * @return Every partition, sorted by name, each from the directory that takes precedence.
+     */
+    public List<Entry> list() {
+        Map<String, Entry> entries = new TreeMap<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            for (Partition partition : roots.get(i).partitions.values()) {
+                entries.put(partition.entry.name(), partition.entry);
+            }
+        }
+        return List.copyOf(entries.values());
+    }
+
+    /**
+     * @param name The name of the partition.
+     * @return What the index knows about it, or null if there is no such partition.
+     */
+    public Entry entry(String name) {
+        Partition partition = find(name);
+        return partition == null ? null : partition.entry;
+    }
+
+    /**
+     * Returns a partition, parsing it on first use. A partition changed since is parsed again.
+     *
+     * @param name The name of the partition.
+     * @return The score.
+     * @throws NoSuchFileException    If there is no such partition.
+     * @throws IOException            If the partition cannot be read.
+     * @throws NumberFormatException  If a duration is not a number.
+     */
+    public Score score(String name) throws IOException {
+        Partition partition = find(name);
+        if (partition == null) throw new NoSuchFileException(name);
+        Score score = partition.score;
+        if (score == null) {
+            // Two threads may both parse a partition the first time; either score will do
+            score = Score.parse(Files.readAllLines(partition.path, StandardCharsets.UTF_8));
+            partition.score = score;
+        }
+        return score;
+    }
+
+    private Partition find(String name) {
+        for (Root root : roots) {
+            Partition partition = root.partitions.get(name);
+            if (partition != null) return partition;
+        }
+        return null;
+    }
+
+    /**
+     * @param listener Called on the watcher thread after partitions were created, modified or deleted.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Stops watching the directories and closes the jar the bundled partitions were read from.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (watchService != null) watchService.close();
+        } finally {
+            if (jarFileSystem != null) jarFileSystem.close();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package fr.eletutour.sound.generation.score;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+/**
+ * A score rendered once into 16-bit samples, to be played again without synthesising anything: each
+ * {@link #stream()} only converts the stored samples back to the mix range.
+ */
+public final class RenderedScore {
+
+    private final Score score;
+    private final double sampleRate;
+    private final short[] samples;
+    // Sample at which each event starts, to follow playback without the renderer
+    private final long[] eventStarts;
+
+    /**
+     * @param score      The score the samples were rendered from.
+     * @param sampleRate The sample rate of the samples in Hz.
+     * @param samples    The samples, 16-bit signed.
+     */
+    public RenderedScore(Score score, double sampleRate, short[] samples) {
+        this.score = score;
+        this.sampleRate = sampleRate;
+        this.samples = samples;
+        this.eventStarts = new long[score.size()];
+        for (int i = 0; i < eventStarts.length; i++) {
+            eventStarts[i] = Score.toSamples(score.startMs(i), sampleRate);
+        }
+    }
+
+    /**
+     * Synthesises a whole score.
+     *
+     * @param score      The score to render.
+     * @param waveform   The waveform of the notes.
+     * @param sampleRate The sample rate in Hz.
+     * @return The rendered score.
+     * @throws IllegalArgumentException If the score is too long to be held in a single array.
+     */
+    public static RenderedScore render(Score score, AudioConstants.Waveform waveform, double sampleRate) {
+        ScoreRenderer renderer = new ScoreRenderer(score, waveform, sampleRate);
+        if (renderer.getLength() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Score too long to be rendered in memory: " + score.durationMs() + " ms");
+        }
+        short[] samples = new short[(int) renderer.getLength()];
+        double[] block = new double[4096];
+        int position = 0, count;
+        while ((count = renderer.render(block, 0, block.length)) > 0) {
+            for (int i = 0; i < count; i++) {
+                double sample = Math.max(-1.0, Math.min(1.0, block[i]));
+                samples[position + i] = (short) (sample * Short.MAX_VALUE);
+            }
+            position += count;
+        }
+        return new RenderedScore(score, sampleRate, samples);
+    }
+
+    public Score getScore() {
+        return score;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return The samples, which must not be modified.
+     */
+    short[] samples() {
+        return samples;
+    }
+
+    /**
+     * @return The memory held by the samples, in bytes.
+     */
+    public long sizeInBytes() {
+        return (long) samples.length * Short.BYTES;
+    }
+
+    /**
+     * @return A new stream playing the score from its beginning. Streams share the samples, so any number of
+     *         them may play at once.
+     */
+    public ScoreStream stream() {
+        return new ScoreStream() {
+            private int position = 0;
+            private int event = -1;
+
+            @Override
+            public int render(double[] block, int offset, int count) {
+                if (position >= samples.length) return -1;
+                int read = Math.min(count, samples.length - position);
+                for (int i = 0; i < read; i++) {
+                    block[offset + i] = samples[position + i] / (double) Short.MAX_VALUE;
+                }
+                position += read;
+                // Events are sorted: move on to the last one started so far
+                while (event + 1 < eventStarts.length && eventStarts[event + 1] < position) event++;
+                return read;
+            }
+
+            @Override
+            public int getEvent() {
+                return event;
+            }
+        };
+    }
+}
@@ -0,0 +1,199 @@
+package fr.eletutour.sound.generation.score;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps rendered scores so that playing a score again costs neither parsing nor synthesis.
+ * <p>
+ * Entries are keyed by everything the samples depend on: the partition, its modification time, the waveform
+ * and the sample rate, so editing a partition or changing the waveform simply misses. The memory held is
+ * bounded in bytes; when it is exceeded the least recently played scores are evicted.
+ * <p>
+ * Lookups only ever read memory. A score missing from it is played live while a background thread
+ * {@link #load(Key, Score) loads} it, so that the first play starts as quickly as any other.
+ * <p>
+ * With a spill directory, every score rendered is also written there as raw 16-bit little-endian PCM, and a
+ * score missing from memory is read back from it before being synthesised again. The directory survives
+ * restarts, so a kiosk does not synthesise its usual scores again. Each partition, waveform and sample rate
+ * keeps a single file there: a new modification time replaces the previous rendering.
+ */
+public final class RenderedScoreCache {
+
+    /**
+     * What a rendering depends on.
+     *
+     * @param partition    The name of the partition.
+     * @param lastModified The modification time of the partition, in milliseconds since the epoch.
+     * @param waveform     The waveform of the notes.
+     * @param sampleRate   The sample rate in Hz.
+     */
+    public record Key(String partition, long lastModified, AudioConstants.Waveform waveform, double sampleRate) {
+
+        // Every rendering of the partition with this waveform and rate, whatever its modification time
+        private String filePrefix() {
+            return partition.replaceAll("[^A-Za-z0-9._-]", "_") + "." + waveform + "." + (long) sampleRate + ".";
+        }
+
+        private String fileName() {
+            return filePrefix() + lastModified + ".pcm";
+        }
+    }
+
+    private final long maxBytes;
+    private final Path spillDirectory;
+    private final LinkedHashMap<Key, RenderedScore> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private final Set<Key> loading = new HashSet<>();
+    private long hits = 0, diskHits = 0, misses = 0;
+    // Renders and spills one score at a time, below the priority of the audio threads
+    private final Executor loader = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "score-cache");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * @param maxBytes       The memory the cached samples may hold, in bytes.
+     * @param spillDirectory The directory where renderings are also written, created if needed, or null to keep
+     *                       them in memory only.
+     */
+    public RenderedScoreCache(long maxBytes, Path spillDirectory) {
+        this.maxBytes = maxBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Returns a rendered score if it is in memory. Never blocks on the disk or on synthesis, so it can be called
+     * from the event dispatch thread; on a miss, play the score with a {@link ScoreRenderer} and {@link #load}
+     * it for the next time.
+     *
+     * @param key What the rendering depends on.
+     * @return The rendered score, or null if it is not in memory.
+     */
+    public synchronized RenderedScore getIfPresent(Key key) {
+        RenderedScore rendered = entries.get(key);
+        if (rendered != null) hits++;
+        return rendered;
+    }
+
+    /**
+     * Brings a score into memory in the background, from the spill directory or by synthesising it. Does nothing
+     * if it is already there or being loaded, or if it would not fit in the cache at all.
+     *
+     * @param key   What the rendering depends on.
+     * @param score The parsed score.
+     */
+    public void load(Key key, Score score) {
+        // A score larger than the whole cache is only ever played live
+        if (ScoreRenderer.length(score, key.sampleRate()) * Short.BYTES > maxBytes) return;
+        synchronized (this) {
+            if (entries.containsKey(key) || !loading.add(key)) return;
+        }
+        loader.execute(() -> {
+            try {
+                RenderedScore rendered = readSpilled(key, score);
+                boolean fromDisk = rendered != null;
+                if (!fromDisk) {
+                    rendered = RenderedScore.render(score, key.waveform(), key.sampleRate());
+                    writeSpilled(key, rendered);
+                }
+                synchronized (this) {
+                    if (fromDisk) diskHits++;
+                    else misses++;
+                    put(key, rendered);
+                }
+            } finally {
+                synchronized (this) {
+                    loading.remove(key);
+                }
+            }
+        });
+    }
+
+    private void put(Key key, RenderedScore rendered) {
+        RenderedScore replaced = entries.put(key, rendered);
+        if (replaced != null) bytes -= replaced.sizeInBytes();
+        bytes += rendered.sizeInBytes();
+        Iterator<RenderedScore> eldest = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().sizeInBytes();
+            eldest.remove();
+        }
+    }
+
+    private RenderedScore readSpilled(Key key, Score score) {
+        if (spillDirectory == null) return null;
+        Path file = spillDirectory.resolve(key.fileName());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long expected = ScoreRenderer.length(score, key.sampleRate()) * Short.BYTES;
+            // A truncated or foreign file is rendered again
+            if (size != expected) return null;
+            ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) return null;
+            }
+            short[] samples = new short[(int) size / Short.BYTES];
+            buffer.flip().asShortBuffer().get(samples);
+            return new RenderedScore(score, key.sampleRate(), samples);
+        } catch (IOException e) {
+            // Not spilled yet, or unreadable: render it again
+            return null;
+        }
+    }
+
+    private void writeSpilled(Key key, RenderedScore rendered) {
+        if (spillDirectory == null) return;
+        try {
+            Files.createDirectories(spillDirectory);
+            // Older renderings of the same partition are stale
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(spillDirectory, key.filePrefix() + "*.pcm")) {
+                for (Path file : stale) Files.deleteIfExists(file);
+            }
+
+            short[] samples = rendered.samples();
+            ByteBuffer buffer = ByteBuffer.allocate(samples.length * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asShortBuffer().put(samples);
+            // Written aside then renamed, so that a reader never sees a partial file
+            Path temporary = Files.createTempFile(spillDirectory, key.filePrefix(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(temporary, spillDirectory.resolve(key.fileName()), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The cache still works in memory
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return The memory held by the cached samples, in bytes.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d scores, %.1f MB, %d hits, %d disk hits, %d misses",
+                entries.size(), bytes / 1e6, hits, diskHits, misses);
+    }
+}
@@ -0,0 +1,109 @@
+package fr.eletutour.sound.generation.score;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A parsed partition: a sequence of notes and rests, each with a duration in milliseconds.
+ * <p>
+ * Partitions are text files with one {@code NOTE, duration} line per event, where {@code NOTE} is a key of
+ * {@link AudioConstants#noteFrequencies} or {@code REST}. Malformed lines and unknown notes are skipped.
+ */
+public final class Score {
+
+    private final double[] frequencies;
+    private final int[] durations;
+    // Start of each event, and end of the score in the last slot
+    private final long[] starts;
+
+    private Score(double[] frequencies, int[] durations) {
+        this.frequencies = frequencies;
+        this.durations = durations;
+        this.starts = new long[durations.length + 1];
+        for (int i = 0; i < durations.length; i++) {
+            starts[i + 1] = starts[i] + durations[i];
+        }
+    }
+
+    /**
+     * @param lines The lines of a partition file.
+     * @return The score.
+     * @throws NumberFormatException If a duration is not a number.
+     */
+    public static Score parse(List<String> lines) {
+        double[] frequencies = new double[lines.size()];
+        int[] durations = new int[lines.size()];
+        int count = 0;
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            if (parts.length != 2) continue;
+
+            String noteName = parts[0].trim();
+            int durationMs = Integer.parseInt(parts[1].trim());
+            double frequency;
+            if (noteName.equalsIgnoreCase("REST")) {
+                frequency = 0.0;
+            } else {
+                Double noteFrequency = AudioConstants.noteFrequencies.get(noteName);
+                if (noteFrequency == null) continue; // Skip unknown notes
+                frequency = noteFrequency;
+            }
+            frequencies[count] = frequency;
+            durations[count] = Math.max(0, durationMs);
+            count++;
+        }
+        return new Score(Arrays.copyOf(frequencies, count), Arrays.copyOf(durations, count));
+    }
+
+    /**
+     * @return The number of events, notes and rests.
+     */
+    public int size() {
+        return frequencies.length;
+    }
+
+    /**
+     * @param index The index of the event.
+     * @return The frequency of the note in Hz, or 0 for a rest.
+     */
+    public double frequency(int index) {
+        return frequencies[index];
+    }
+
+    /**
+     * @param index The index of the event.
+     * @return The duration of the event in milliseconds.
+     */
+    public int durationMs(int index) {
+        return durations[index];
+    }
+
+    /**
+     * @param index The index of the event, or {@link #size()} for the end of the score.
+     * @return The time at which the event starts, in milliseconds from the start of the score.
+     */
+    public long startMs(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @return The duration of the whole score in milliseconds.
+     */
+    public long durationMs() {
+        return starts[durations.length];
+    }
+
+    /**
+     * Converts a time in the score to a sample position. Events start on the sample given by the time since the
+     * start of the score, so that rounding never accumulates over a long score.
+     *
+     * @param milliseconds The time in milliseconds.
+     * @param sampleRate   The sample rate in Hz.
+     * @return The sample position.
+     */
+    public static long toSamples(long milliseconds, double sampleRate) {
+        return Math.round(milliseconds * sampleRate / 1000.0);
+    }
+}
@@ -0,0 +1,207 @@
+package fr.eletutour.sound.generation.score;
+
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.engine.AudioSource;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays scores on the {@link AudioEngine}, rendered ahead of time by a producer thread.
+ * <p>
+ * The producer renders a {@link ScoreStream} into a bounded ring of preallocated blocks and parks while the
+ * ring is full; the render thread of the engine copies the blocks into its mix and unparks the producer each
+ * time it frees one. The score is thus written to the output without a gap and with sample-accurate timing,
+ * however long rendering a block takes, and neither thread allocates once playback has started.
+ * <p>
+ * Each playback is a session: stopping or starting a score opens a new one, and blocks left in the ring by an
+ * older session are skipped by the render thread instead of being played.
+ */
+public final class ScorePlayer implements AudioSource {
+
+    private static final class Block {
+        final double[] samples = new double[AudioEngine.BLOCK_SIZE];
+        int length;
+        int event;
+        int session;
+        boolean last;
+    }
+
+    private final Block[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final Runnable readyListener;
+    private final AtomicLong underruns = new AtomicLong();
+
+    private volatile int session = 0;
+    private volatile int finishedSession = 0;
+    private volatile int currentEvent = -1;
+    private volatile Thread producer;
+
+    // Render thread state
+    private Block reading;
+    private int readPosition;
+    private int startedSession = 0;
+
+    /**
+     * @param ringBlocks    The number of blocks rendered ahead, a power of 2.
+     * @param readyListener Called by the producer once the ring is first full, or the score entirely rendered:
+     *                      typically {@link AudioEngine#wake()}, so that an idle engine starts playing.
+     */
+    public ScorePlayer(int ringBlocks, Runnable readyListener) {
+        if (ringBlocks < 2 || Integer.bitCount(ringBlocks) != 1) {
+            throw new IllegalArgumentException("The ring size must be a power of 2, got " + ringBlocks);
+        }
+        this.ring = new Block[ringBlocks];
+        for (int i = 0; i < ringBlocks; i++) {
+            ring[i] = new Block();
+        }
+        this.mask = ringBlocks - 1;
+        this.readyListener = readyListener;
+    }
+
+    /**
+     * Stops the current score, if any, and starts rendering another one.
+     *
+     * @param stream The score to play, from its beginning.
+     */
+    public synchronized void play(ScoreStream stream) {
+        stop();
+        int id = ++session;
+        Thread thread = new Thread(() -> produce(stream, id), "score-producer");
+        thread.setDaemon(true);
+        producer = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops the current score at once. Does nothing if none is playing.
+     */
+    public synchronized void stop() {
+        Thread thread = producer;
+        if (thread == null) return;
+        // The render thread skips whatever the old session left in the ring
+        int id = ++session;
+        finishedSession = id;
+        currentEvent = -1;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        producer = null;
+    }
+
+    /**
+     * @return true from {@link #play(ScoreStream)} until the last block of the score has been mixed.
+     */
+    public boolean isPlaying() {
+        return finishedSession != session;
+    }
+
+    /**
+     * @return The index of the score event being heard, or -1 when none is.
+     */
+    public int getCurrentEvent() {
+        return currentEvent;
+    }
+
+    /**
+     * @return The number of blocks the render thread found missing because the producer fell behind.
+     */
+    public long getUnderruns() {
+        return underruns.get();
+    }
+
+    private void produce(ScoreStream stream, int id) {
+        boolean ready = false;
+        while (session == id) {
+            long position = tail.get();
+            if (position - head.get() == ring.length) {
+                if (!ready) {
+                    ready = true;
+                    readyListener.run();
+                }
+                // Unparked by the render thread as soon as it frees a block, or by stop()
+                LockSupport.park(this);
+                continue;
+            }
+
+            Block block = ring[(int) position & mask];
+            int rendered = Math.max(0, stream.render(block.samples, 0, block.samples.length));
+            block.length = rendered;
+            block.event = stream.getEvent();
+            block.session = id;
+            block.last = rendered < block.samples.length;
+            // Publishes the block to the render thread
+            tail.set(position + 1);
+
+            if (block.last) {
+                if (!ready) readyListener.run();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies the next rendered samples into the mix, on the render thread of the engine.
+     */
+    @Override
+    public boolean render(double[] mix, int length) {
+        int id = session;
+        int written = 0;
+        while (written < length) {
+            if (reading != null && reading.session != id) release();
+            if (reading == null) {
+                long position = head.get();
+                if (position == tail.get()) break;
+                Block block = ring[(int) position & mask];
+                if (block.session != id) {
+                    // Left over from a stopped score
+                    head.set(position + 1);
+                    unparkProducer();
+                    continue;
+                }
+                reading = block;
+                readPosition = 0;
+                startedSession = id;
+            }
+
+            int count = Math.min(length - written, reading.length - readPosition);
+            double[] samples = reading.samples;
+            for (int i = 0; i < count; i++) {
+                mix[written + i] += samples[readPosition + i];
+            }
+            written += count;
+            readPosition += count;
+            currentEvent = reading.event;
+
+            if (readPosition == reading.length) {
+                boolean last = reading.last;
+                release();
+                if (last) {
+                    finishedSession = id;
+                    currentEvent = -1;
+                    return false;
+                }
+            }
+        }
+
+        // The producer is late: the rest of the block stays silent, which is heard as a gap
+        if (written < length && startedSession == id && isPlaying()) underruns.incrementAndGet();
+        return isPlaying();
+    }
+
+    private void release() {
+        reading = null;
+        head.set(head.get() + 1);
+        unparkProducer();
+    }
+
+    private void unparkProducer() {
+        Thread thread = producer;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+}
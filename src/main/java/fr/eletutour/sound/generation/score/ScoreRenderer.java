@@ -0,0 +1,122 @@
+package fr.eletutour.sound.generation.score;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.oscillator.Oscillator;
+
+/**
+ * Renders a {@link Score} to samples, block after block.
+ * <p>
+ * Every event starts on the sample given by the total duration of the events before it, so rounding never
+ * accumulates and a long score does not drift. Notes never start on a discontinuity: the incoming note takes
+ * over the phase of the outgoing one and the two are crossfaded over a few milliseconds, and notes fade in
+ * after a rest and out before one. Rendering allocates nothing.
+ */
+public final class ScoreRenderer implements ScoreStream {
+
+    /** The length of the crossfade between two events. */
+    public static final double CROSSFADE_SECONDS = 0.005;
+
+    private final Score score;
+    private final double sampleRate;
+    private final int crossfade;
+    private final long length;
+
+    // Two oscillators taking turns: the current note, and the previous one while it fades out
+    private Oscillator current;
+    private Oscillator previous;
+    private boolean currentSounding = false;
+    private boolean previousSounding = false;
+
+    private int event = -1;
+    private long position = 0;
+    private long eventEnd = 0;
+    private int fade;
+
+    /**
+     * @param score      The score to render.
+     * @param waveform   The waveform of the notes.
+     * @param sampleRate The sample rate in Hz.
+     */
+    public ScoreRenderer(Score score, AudioConstants.Waveform waveform, double sampleRate) {
+        this.score = score;
+        this.sampleRate = sampleRate;
+        this.crossfade = crossfadeLength(sampleRate);
+        this.fade = crossfade;
+        this.current = new Oscillator(waveform, sampleRate);
+        this.previous = new Oscillator(waveform, sampleRate);
+        this.length = length(score, sampleRate);
+    }
+
+    /**
+     * @param score      A score.
+     * @param sampleRate The sample rate in Hz.
+     * @return The number of samples of the rendering of the score.
+     */
+    public static long length(Score score, double sampleRate) {
+        // The last note fades out after the end of the score
+        return Score.toSamples(score.durationMs(), sampleRate) + crossfadeLength(sampleRate);
+    }
+
+    private static int crossfadeLength(double sampleRate) {
+        return Math.max(1, (int) (CROSSFADE_SECONDS * sampleRate));
+    }
+
+    /**
+     * @return The number of samples of the whole rendering.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public int getEvent() {
+        // The fade-out after the last event still belongs to it
+        return Math.min(event, score.size() - 1);
+    }
+
+    @Override
+    public int render(double[] block, int offset, int count) {
+        if (position >= length) return -1;
+        int rendered = (int) Math.min(count, length - position);
+        for (int i = 0; i < rendered; i++, position++) {
+            while (position == eventEnd) nextEvent();
+
+            double sample = currentSounding ? current.next() : 0.0;
+            if (fade < crossfade) {
+                double gain = (double) fade / crossfade;
+                sample *= gain;
+                if (previousSounding) sample += (1.0 - gain) * previous.next();
+                fade++;
+            }
+            block[offset + i] = sample;
+        }
+        return rendered;
+    }
+
+    private void nextEvent() {
+        event++;
+        Oscillator outgoing = current;
+        current = previous;
+        previous = outgoing;
+        previousSounding = currentSounding;
+        fade = 0;
+
+        if (event < score.size()) {
+            double frequency = score.frequency(event);
+            currentSounding = frequency > 0.0;
+            if (currentSounding) {
+                current.setFrequency(frequency);
+                current.setPhase(outgoing.getPhase());
+            }
+            eventEnd = toSamples(score.startMs(event + 1));
+        } else {
+            // Past the last event: only the fade-out remains
+            currentSounding = false;
+            eventEnd = -1;
+        }
+    }
+
+    private long toSamples(long milliseconds) {
+        return Score.toSamples(milliseconds, sampleRate);
+    }
+}
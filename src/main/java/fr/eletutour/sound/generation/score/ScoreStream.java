@@ -0,0 +1,24 @@
+package fr.eletutour.sound.generation.score;
+
+/**
+ * The samples of a score being played, read block after block by the producer of a {@link ScorePlayer}: either
+ * synthesised on the fly by a {@link ScoreRenderer}, or read back from a {@link RenderedScore}.
+ */
+public interface ScoreStream {
+
+    /**
+     * Writes the next samples, replacing the contents of the block.
+     *
+     * @param block  The destination.
+     * @param offset The index of the first sample written.
+     * @param count  The number of samples wanted.
+     * @return The number of samples written, fewer than asked only at the end, or -1 once the score is over.
+     */
+    int render(double[] block, int offset, int count);
+
+    /**
+     * @return The index of the score event at the current position, or -1 before the first sample. Stays on the
+     *         last event until the end of the stream, never reaching the size of the score.
+     */
+    int getEvent();
+}
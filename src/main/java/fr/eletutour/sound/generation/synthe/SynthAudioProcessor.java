@@ -0,0 +1,97 @@
+package fr.eletutour.sound.generation.synthe;
+
+import fr.eletutour.sound.generation.engine.AudioEngine;
+import fr.eletutour.sound.generation.engine.AudioSource;
+import fr.eletutour.sound.generation.engine.NoteEvent;
+import fr.eletutour.sound.generation.engine.NoteEventQueue;
+import fr.eletutour.sound.generation.engine.ParameterBus;
+
+import java.util.Arrays;
+
+/**
+ * The sound of the synthesiser: a fixed set of voices played through a {@link NoteEventQueue} and rendered block
+ * by block on the render thread of the {@link AudioEngine}. Needs no window, so it can also be rendered offline.
+ */
+public final class SynthAudioProcessor implements AudioSource {
+
+    private static final int NUM_VOICES = 8;
+
+    private final NoteEventQueue noteEvents;
+    private final ParameterBus<SynthParameters> parameters;
+    // Only touched by the render thread
+    private final Voice[] voices = new Voice[NUM_VOICES];
+    private final double[] voiceMix = new double[AudioEngine.BLOCK_SIZE];
+
+    /**
+     * @param noteEvents The notes, keyed by the character of their key.
+     * @param parameters The controls, read once per block.
+     */
+    public SynthAudioProcessor(NoteEventQueue noteEvents, ParameterBus<SynthParameters> parameters) {
+        this.noteEvents = noteEvents;
+        this.parameters = parameters;
+        for (int i = 0; i < NUM_VOICES; i++) {
+            voices[i] = new Voice();
+        }
+    }
+
+    /**
+     * Renders a block of the synthesiser, applying each pending event at its offset.
+     */
+    @Override
+    public boolean render(double[] mix, int length) {
+        // Latest controls published by the UI, read once per block without touching Swing
+        SynthParameters parameters = this.parameters.read();
+        Arrays.fill(voiceMix, 0, length, 0.0);
+        // Renders up to each event, applies it at its offset, and carries on
+        int events = noteEvents.drain(length);
+        int position = 0;
+        for (int e = 0; e < events; e++) {
+            NoteEvent event = noteEvents.get(e);
+            for (Voice voice : voices) {
+                voice.render(voiceMix, position, event.offset() - position, parameters);
+            }
+            position = event.offset();
+            apply(event);
+        }
+        boolean sounding = false;
+        for (Voice voice : voices) {
+            voice.render(voiceMix, position, length - position, parameters);
+            sounding |= voice.state != Voice.State.INACTIVE;
+        }
+        for (int i = 0; i < length; i++) {
+            mix[i] += Math.tanh(voiceMix[i] * 0.25);
+        }
+        return sounding;
+    }
+
+    private void apply(NoteEvent event) {
+        switch (event.type()) {
+            case NOTE_ON -> {
+                Voice voice = findAvailableVoice();
+                if (voice != null) voice.press((char) event.key(), event.frequency());
+            }
+            case NOTE_OFF -> {
+                for (Voice voice : voices) {
+                    if (voice.key == event.key()) voice.release();
+                }
+            }
+            case ALL_NOTES_OFF -> {
+                for (Voice voice : voices) voice.release();
+            }
+            default -> { }
+        }
+    }
+
+    private Voice findAvailableVoice() {
+        Voice oldestReleased = null;
+        for (Voice voice : voices) {
+            if (voice.state == Voice.State.INACTIVE) return voice;
+            if (voice.state == Voice.State.RELEASE) {
+                if (oldestReleased == null || voice.samplesInState > oldestReleased.samplesInState) {
+                    oldestReleased = voice;
+                }
+            }
+        }
+        return oldestReleased;
+    }
+}
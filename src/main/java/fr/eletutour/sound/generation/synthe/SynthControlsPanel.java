@@ -1,6 +1,7 @@
 package fr.eletutour.sound.generation.synthe;
 
 import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.engine.ParameterBus;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
@@ -10,6 +11,7 @@ public class SynthControlsPanel extends JPanel {
 
     private final JSlider attackSlider, releaseSlider, pitchSlider, cutoffSlider, resonanceSlider;
     private final ButtonGroup waveformGroup;
+    private final ParameterBus<SynthParameters> parameterBus;
 
     public SynthControlsPanel() {
         setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
@@ -48,6 +50,15 @@ public class SynthControlsPanel extends JPanel {
 
         add(waveformPanel);
         add(sliderPanel);
+
+        // Every change publishes a fresh snapshot: the audio thread never reads the Swing models itself
+        parameterBus = new ParameterBus<>(snapshot());
+        for (JSlider slider : new JSlider[]{attackSlider, releaseSlider, cutoffSlider, resonanceSlider}) {
+            slider.addChangeListener(e -> parameterBus.publish(snapshot()));
+        }
+        for (Component button : waveformPanel.getComponents()) {
+            ((JRadioButton) button).addActionListener(e -> parameterBus.publish(snapshot()));
+        }
     }
 
     private JSlider createSlider(String name, int min, int max, int initial) {
@@ -67,4 +78,18 @@ public class SynthControlsPanel extends JPanel {
     public double getFilterCutoff() { return cutoffSlider.getValue() / 100.0; }
     public double getFilterResonance() { return resonanceSlider.getValue() / 100.0; }
     public AudioConstants.Waveform getSelectedWaveform() { return AudioConstants.Waveform.valueOf(waveformGroup.getSelection().getActionCommand()); }
+
+    /**
+     * @return The bus on which the voice parameters are published for the audio thread.
+     */
+    public ParameterBus<SynthParameters> getParameterBus() {
+        return parameterBus;
+    }
+
+    /**
+     * Reads every voice parameter at once. Must be called on the event dispatch thread.
+     */
+    public SynthParameters snapshot() {
+        return new SynthParameters(getSelectedWaveform(), getAttackTime(), getReleaseTime(), getFilterCutoff(), getFilterResonance());
+    }
 }
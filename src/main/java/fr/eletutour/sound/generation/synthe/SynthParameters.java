@@ -0,0 +1,16 @@
+package fr.eletutour.sound.generation.synthe;
+
+import fr.eletutour.sound.constant.AudioConstants;
+
+/**
+ * An immutable snapshot of the synthesiser controls, taken once per rendered block.
+ *
+ * @param waveform        The oscillator waveform.
+ * @param attackTime      The attack time in seconds.
+ * @param releaseTime     The release time in seconds.
+ * @param filterCutoff    The normalised filter cutoff, from 0 to 1.
+ * @param filterResonance The normalised filter resonance, from 0 to 1.
+ */
+public record SynthParameters(AudioConstants.Waveform waveform, double attackTime, double releaseTime,
+                              double filterCutoff, double filterResonance) {
+}
@@ -0,0 +1,124 @@
+package fr.eletutour.sound.generation.synthe;
+
+import fr.eletutour.sound.constant.AudioConstants;
+import fr.eletutour.sound.generation.oscillator.Oscillator;
+
+/**
+ * One synthesiser voice: a band-limited oscillator, a linear ADSR envelope and a state-variable low-pass filter.
+ * <p>
+ * Voices are rendered a block at a time, split where note events fall, with a {@link SynthParameters} snapshot
+ * taken once per block. The envelope is clocked by sample counts rather than wall-clock time, so it is
+ * deterministic and independent of scheduling jitter, and the filter coefficients are only recomputed when the
+ * cutoff or resonance change, then ramped across the block so that moving a slider does not produce zipper noise.
+ */
+class Voice {
+    private static final double SUSTAIN_LEVEL = 0.7; // Hardcoded for now
+    private static final double DECAY_TIME = 0.1; // Hardcoded for now
+
+    private final Oscillator oscillator = new Oscillator(AudioConstants.Waveform.SINE);
+    private double currentAmplitude = 0.0, releaseStartAmplitude = 0.0;
+    char key = 0;
+    // Samples rendered since the last state change, used to advance the envelope and to pick the voice to steal
+    long samplesInState = 0;
+    State state = State.INACTIVE;
+    enum State { INACTIVE, ATTACK, DECAY, SUSTAIN, RELEASE }
+    private double low = 0.0, band = 0.0;
+
+    // Filter coefficients, cached for the last cutoff and resonance seen and ramped over a block when they change
+    private double cachedCutoff = Double.NaN, cachedResonance = Double.NaN;
+    private double f, q, targetF, targetQ, fStep, qStep;
+
+    void press(char key, double frequency) {
+        this.key = key; this.state = State.ATTACK;
+        oscillator.setFrequency(frequency); oscillator.resetPhase(); this.samplesInState = 0;
+        this.low = 0.0; this.band = 0.0;
+    }
+
+    void release() {
+        if (state != State.INACTIVE) {
+            this.state = State.RELEASE;
+            this.releaseStartAmplitude = currentAmplitude;
+            this.samplesInState = 0;
+        }
+    }
+
+    /**
+     * Adds the next {@code length} samples of this voice to {@code mix}, starting at {@code offset}. A block is
+     * rendered in several calls when note events split it.
+     *
+     * @param mix        The block being mixed.
+     * @param offset     The first sample of {@code mix} to render.
+     * @param length     The number of samples to render.
+     * @param parameters The parameters to use for the whole block.
+     */
+    void render(double[] mix, int offset, int length, SynthParameters parameters) {
+        if (state == State.INACTIVE || length == 0) return;
+
+        updateFilter(parameters.filterCutoff(), parameters.filterResonance(), length);
+        oscillator.setWaveform(parameters.waveform());
+
+        // ADSR durations in samples, read once per block
+        double attackSamples = parameters.attackTime() * AudioConstants.SAMPLE_RATE;
+        double releaseSamples = parameters.releaseTime() * AudioConstants.SAMPLE_RATE;
+        double decaySamples = DECAY_TIME * AudioConstants.SAMPLE_RATE;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            switch (state) {
+                case ATTACK:
+                    if (samplesInState >= attackSamples) { currentAmplitude = 1.0; state = State.DECAY; samplesInState = 0; }
+                    else { currentAmplitude = samplesInState / attackSamples; }
+                    break;
+                case DECAY:
+                    if (samplesInState >= decaySamples) { currentAmplitude = SUSTAIN_LEVEL; state = State.SUSTAIN; }
+                    else { currentAmplitude = 1.0 - (1.0 - SUSTAIN_LEVEL) * (samplesInState / decaySamples); }
+                    break;
+                case SUSTAIN:
+                    currentAmplitude = SUSTAIN_LEVEL;
+                    break;
+                case RELEASE:
+                    if (samplesInState >= releaseSamples) { currentAmplitude = 0.0; state = State.INACTIVE; key = 0; samplesInState = 0; }
+                    else { currentAmplitude = releaseStartAmplitude * (1.0 - (samplesInState / releaseSamples)); }
+                    break;
+                case INACTIVE:
+                    break;
+            }
+            if (state == State.INACTIVE) break;
+            samplesInState++;
+
+            // Waveform, band-limited for the current frequency
+            double sampleValue = oscillator.next();
+
+            // Filter
+            f += fStep;
+            q += qStep;
+            low = low + f * band;
+            double high = sampleValue - low - q * band;
+            band = f * high + band;
+
+            mix[i] += low * currentAmplitude;
+        }
+        // The ramp ends exactly on the new coefficients
+        f = targetF;
+        q = targetQ;
+        fStep = 0.0;
+        qStep = 0.0;
+    }
+
+    private void updateFilter(double filterCutoff, double filterResonance, int length) {
+        if (filterCutoff == cachedCutoff && filterResonance == cachedResonance) return;
+        boolean first = Double.isNaN(cachedCutoff);
+        cachedCutoff = filterCutoff;
+        cachedResonance = filterResonance;
+        double cutoff = 20000.0 * Math.pow(filterCutoff, 3);
+        targetF = 2 * Math.sin(Math.PI * Math.min(0.25, cutoff / (AudioConstants.SAMPLE_RATE * 2)));
+        targetQ = 1.0 - filterResonance;
+        if (first) {
+            f = targetF;
+            q = targetQ;
+        } else {
+            // A sudden coefficient jump clicks: spread it over the block instead
+            fStep = (targetF - f) / length;
+            qStep = (targetQ - q) / length;
+        }
+    }
+}
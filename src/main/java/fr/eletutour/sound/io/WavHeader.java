@@ -0,0 +1,137 @@
+package fr.eletutour.sound.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Describes the layout of a RIFF/WAVE file: sample format and location of the PCM data chunk.
+ *
+ * @param formatTag     The WAVE format tag (1 = integer PCM, 3 = IEEE float), resolved for extensible files.
+ * @param channels      The number of interleaved channels.
+ * @param sampleRate    The sample rate in Hz.
+ * @param bitsPerSample The size of one sample of one channel, in bits.
+ * @param blockAlign    The size of one frame (all channels), in bytes.
+ * @param dataOffset    The file position of the first PCM byte.
+ * @param dataLength    The number of PCM bytes.
+ */
+public record WavHeader(int formatTag, int channels, int sampleRate, int bitsPerSample, int blockAlign,
+                        long dataOffset, long dataLength) {
+
+    public static final int FORMAT_PCM = 1;
+    public static final int FORMAT_IEEE_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    /**
+     * The size of the header written by {@link #pcmHeader(int, int, int, long)}.
+     */
+    public static final int PCM_HEADER_SIZE = 44;
+
+    /**
+     * @return The number of frames (samples per channel) in the data chunk.
+     */
+    public long frameCount() {
+        return dataLength / blockAlign;
+    }
+
+    /**
+     * Parses the header of a WAVE file by walking its chunks until the data chunk is found.
+     * The channel position is left unspecified.
+     *
+     * @param channel An open channel on the file.
+     * @return The parsed header.
+     * @throws IOException If the file is not a supported WAVE file.
+     */
+    public static WavHeader read(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+
+        readFully(channel, buffer, 0, 12);
+        if (buffer.getInt(0) != fourCC("RIFF") || buffer.getInt(8) != fourCC("WAVE")) {
+            throw new IOException("Not a RIFF/WAVE file");
+        }
+
+        int formatTag = -1, channels = 0, sampleRate = 0, bitsPerSample = 0, blockAlign = 0;
+        long position = 12;
+        while (position + 8 <= fileSize) {
+            readFully(channel, buffer, position, 8);
+            int id = buffer.getInt(0);
+            long size = Integer.toUnsignedLong(buffer.getInt(4));
+            long body = position + 8;
+
+            if (id == fourCC("fmt ")) {
+                // The fields below fill the first 16 bytes; a shorter chunk would leave stale bytes in the buffer
+                if (size < 16) throw new IOException("Unsupported fmt chunk");
+                readFully(channel, buffer, body, (int) Math.min(size, 40));
+                formatTag = buffer.getShort(0) & 0xFFFF;
+                channels = buffer.getShort(2) & 0xFFFF;
+                sampleRate = buffer.getInt(4);
+                blockAlign = buffer.getShort(12) & 0xFFFF;
+                bitsPerSample = buffer.getShort(14) & 0xFFFF;
+                if (formatTag == FORMAT_EXTENSIBLE && size >= 26) {
+                    // The sub-format GUID starts with the actual format tag
+                    formatTag = buffer.getShort(24) & 0xFFFF;
+                }
+                // Frames must be whole numbers of bytes holding every channel, or decoding would read garbage
+                if (channels == 0 || bitsPerSample == 0 || sampleRate <= 0
+                        || blockAlign != channels * ((bitsPerSample + 7) / 8)) {
+                    throw new IOException("Unsupported fmt chunk");
+                }
+            } else if (id == fourCC("data")) {
+                if (formatTag < 0) throw new IOException("Missing fmt chunk before data chunk");
+                // Streaming writers may leave the size at 0 or 0xFFFFFFFF: trust the file size instead
+                long available = fileSize - body;
+                long dataLength = (size == 0 || size > available) ? available : size;
+                dataLength -= dataLength % blockAlign;
+                return new WavHeader(formatTag, channels, sampleRate, bitsPerSample, blockAlign, body, dataLength);
+            }
+            position = body + size + (size & 1); // Chunks are word aligned
+        }
+        throw new IOException("No data chunk found");
+    }
+
+    /**
+     * Builds the canonical 44-byte header of an integer PCM WAVE file.
+     *
+     * @param sampleRate    The sample rate in Hz.
+     * @param channels      The number of interleaved channels.
+     * @param bitsPerSample The size of one sample of one channel, in bits.
+     * @param dataLength    The number of PCM bytes following the header, clamped to the RIFF 4 GB limit.
+     * @return A buffer ready to be written at the start of the file.
+     */
+    public static ByteBuffer pcmHeader(int sampleRate, int channels, int bitsPerSample, long dataLength) {
+        int blockAlign = channels * bitsPerSample / 8;
+        long riffLimit = 0xFFFFFFFFL - 36;
+        long clampedLength = Math.min(dataLength, riffLimit);
+
+        ByteBuffer header = ByteBuffer.allocate(PCM_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(fourCC("RIFF"))
+                .putInt((int) (36 + clampedLength))
+                .putInt(fourCC("WAVE"))
+                .putInt(fourCC("fmt "))
+                .putInt(16)
+                .putShort((short) FORMAT_PCM)
+                .putShort((short) channels)
+                .putInt(sampleRate)
+                .putInt(sampleRate * blockAlign)
+                .putShort((short) blockAlign)
+                .putShort((short) bitsPerSample)
+                .putInt(fourCC("data"))
+                .putInt((int) clampedLength);
+        return header.flip();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of WAVE file");
+            }
+        }
+    }
+
+    private static int fourCC(String id) {
+        return (id.charAt(0)) | (id.charAt(1) << 8) | (id.charAt(2) << 16) | (id.charAt(3) << 24);
+    }
+}
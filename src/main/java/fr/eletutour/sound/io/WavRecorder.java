@@ -0,0 +1,170 @@
+package fr.eletutour.sound.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records integer PCM audio to a WAVE file with constant memory usage.
+ * <p>
+ * The capture thread copies its data into one of a fixed pool of direct buffers; full buffers are handed
+ * to a dedicated writer thread that drains them to a {@link FileChannel} and returns them to the pool.
+ * {@link #write(byte[], int, int)} never waits for the disk: if every buffer is still queued for writing,
+ * the data is dropped and counted instead. A placeholder header is written when the file is opened and
+ * the RIFF and data sizes are patched on {@link #close()}.
+ */
+public final class WavRecorder implements AutoCloseable {
+
+    // Marks the end of the recording in the queue of filled buffers
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final int sampleRate;
+    private final int channels;
+    private final int bitsPerSample;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<ByteBuffer> filledBuffers;
+    private final Thread writerThread;
+
+    private ByteBuffer current;
+    private long droppedBytes = 0;
+    private volatile long bytesWritten = 0;
+    private volatile IOException writeFailure;
+    private boolean closed = false;
+
+    /**
+     * Creates (or truncates) the file and starts the writer thread.
+     *
+     * @param file          The WAVE file to write.
+     * @param sampleRate    The sample rate in Hz.
+     * @param channels      The number of interleaved channels.
+     * @param bitsPerSample The sample size in bits; the data passed to {@link #write} must be little-endian.
+     * @param bufferSize    The size of each pooled buffer, in bytes.
+     * @param bufferCount   The number of pooled buffers, which bounds the memory used by the recorder.
+     * @throws IOException If the file cannot be created.
+     */
+    public WavRecorder(Path file, int sampleRate, int channels, int bitsPerSample, int bufferSize, int bufferCount) throws IOException {
+        if (bufferCount < 2) throw new IllegalArgumentException("At least two buffers are required");
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitsPerSample = bitsPerSample;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writeFully(WavHeader.pcmHeader(sampleRate, channels, bitsPerSample, 0), 0);
+
+        this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        this.filledBuffers = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 1; i < bufferCount; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        this.current = ByteBuffer.allocateDirect(bufferSize);
+
+        this.writerThread = new Thread(this::drain, "wav-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Appends PCM data. Must always be called from the same thread; never blocks on I/O.
+     *
+     * @param data   The source buffer.
+     * @param offset The index of the first byte to record.
+     * @param length The number of bytes to record.
+     * @return false if some data had to be dropped because the writer thread is lagging behind.
+     */
+    public boolean write(byte[] data, int offset, int length) {
+        if (closed) throw new IllegalStateException("Recorder is closed");
+        while (length > 0) {
+            if (current == null && (current = freeBuffers.poll()) == null) {
+                droppedBytes += length;
+                return false;
+            }
+            int count = Math.min(length, current.remaining());
+            current.put(data, offset, count);
+            offset += count;
+            length -= count;
+            if (!current.hasRemaining()) {
+                filledBuffers.add(current);
+                current = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of bytes dropped because no free buffer was available.
+     */
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    /**
+     * @return The number of PCM bytes written to disk so far.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Flushes the pending data, waits for the writer thread and patches the header sizes.
+     *
+     * @throws IOException If writing the file failed at any point.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (current != null && current.position() > 0) {
+            filledBuffers.add(current);
+        }
+        current = null;
+        filledBuffers.add(END_OF_STREAM);
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try (channel) {
+            if (writeFailure != null) throw writeFailure;
+            writeFully(WavHeader.pcmHeader(sampleRate, channels, bitsPerSample, bytesWritten), 0);
+        }
+    }
+
+    private void drain() {
+        long position = WavHeader.PCM_HEADER_SIZE;
+        try {
+            while (true) {
+                ByteBuffer buffer = filledBuffers.take();
+                if (buffer == END_OF_STREAM) return;
+
+                buffer.flip();
+                int length = buffer.remaining();
+                if (writeFailure == null) {
+                    try {
+                        writeFully(buffer, position);
+                        position += length;
+                        bytesWritten = position - WavHeader.PCM_HEADER_SIZE;
+                    } catch (IOException e) {
+                        writeFailure = e;
+                    }
+                }
+                buffer.clear();
+                freeBuffers.add(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}